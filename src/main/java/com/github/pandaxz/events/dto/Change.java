@@ -18,15 +18,25 @@
 package com.github.pandaxz.events.dto;
 
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 
 /**
+ * Change of table row. Change acquired from {@link ChangePool} is reference counted, it is returned to pool when the
+ * last reference is released, so it should not be used after it is released.
+ *
  * @author Uladzislau Belykh
  */
 public class Change<T> {
+    @SuppressWarnings("rawtypes")
+    private static final AtomicIntegerFieldUpdater<Change> REFERENCES = AtomicIntegerFieldUpdater.newUpdater(Change.class, "references");
+
+    private ChangePool pool;
+    private volatile int references;
     private ChangeType type;
     private String table;
     private T oldValue;
     private T newValue;
+    private long size;
 
     public Change() {
     }
@@ -70,6 +80,61 @@ public class Change<T> {
         this.newValue = newValue;
     }
 
+    /**
+     * Gets estimated size of change in memory, it is computed by decoder and used by byte limits of holder.
+     *
+     * @return the size in bytes or 0 if it is unknown
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * Sets estimated size of change in memory.
+     *
+     * @param size the size in bytes
+     */
+    public void setSize(long size) {
+        this.size = size;
+    }
+
+    /**
+     * Adds reference to pooled change. It does nothing for change that is not pooled.
+     */
+    public void retain() {
+        if (this.pool != null) {
+            REFERENCES.incrementAndGet(this);
+        }
+    }
+
+    /**
+     * Releases reference to pooled change, change is returned to pool when the last reference is released. It does
+     * nothing for change that is not pooled.
+     */
+    public void release() {
+        if (this.pool != null) {
+            int references = REFERENCES.decrementAndGet(this);
+            if (references == 0) {
+                this.pool.release(this);
+            } else if (references < 0) {
+                throw new IllegalStateException("Change is released more times than retained");
+            }
+        }
+    }
+
+    void acquire(ChangePool pool) {
+        this.pool = pool;
+        this.references = 1;
+    }
+
+    void clear() {
+        this.type = null;
+        this.table = null;
+        this.oldValue = null;
+        this.newValue = null;
+        this.size = 0;
+    }
+
     @Override
     public String toString() {
         return "ChangeMessage{" +
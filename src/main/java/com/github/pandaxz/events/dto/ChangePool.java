@@ -0,0 +1,114 @@
+/*
+ *   Copyright 2019 the original author or authors.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *        https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package com.github.pandaxz.events.dto;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded pool of {@link Change} instances and value arrays of their rows. Change is acquired by decoder with one
+ * reference, every event queue retains it and releases it after the last handler finishes, and producer releases its
+ * reference after change is added to queues. Changes that are never released are just collected by gc.
+ * <p>
+ * Handlers should not keep change, its rows or values of rows after handling, they are reused by next changes.
+ *
+ * @author Uladzislau Belykh
+ */
+public class ChangePool {
+
+    private static final int MAX_POOLED_COLUMNS = 64;
+
+    private final int capacity;
+    private final ArrayBlockingQueue<Change<Map<String, String>>> changes;
+    private final AtomicReferenceArray<ArrayBlockingQueue<String[]>> values = new AtomicReferenceArray<>(MAX_POOLED_COLUMNS + 1);
+
+    /**
+     * Instantiates a new Change pool.
+     *
+     * @param capacity the maximum count of pooled changes and of pooled value arrays of every size
+     */
+    public ChangePool(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Change pool capacity should be positive");
+        }
+        this.capacity = capacity;
+        this.changes = new ArrayBlockingQueue<>(capacity);
+    }
+
+    /**
+     * Acquires change with one reference.
+     *
+     * @param type     the change type
+     * @param table    the table
+     * @param oldValue the old value
+     * @param newValue the new value
+     * @return the change
+     */
+    public Change<Map<String, String>> acquire(ChangeType type, String table, Map<String, String> oldValue, Map<String, String> newValue) {
+        Change<Map<String, String>> change = this.changes.poll();
+        if (change == null) {
+            change = new Change<>();
+        }
+        change.acquire(this);
+        change.setType(type);
+        change.setTable(table);
+        change.setOldValue(oldValue);
+        change.setNewValus(newValue);
+        return change;
+    }
+
+    /**
+     * Acquires array of null values for row.
+     *
+     * @param size the count of columns
+     * @return the values array
+     */
+    public String[] acquireValues(int size) {
+        ArrayBlockingQueue<String[]> arrays = size <= MAX_POOLED_COLUMNS ? this.values.get(size) : null;
+        String[] array = arrays == null ? null : arrays.poll();
+        return array == null ? new String[size] : array;
+    }
+
+    @SuppressWarnings("unchecked")
+    void release(Change<?> change) {
+        releaseValues(change.getOldValue());
+        releaseValues(change.getNewValue());
+        change.clear();
+        this.changes.offer((Change<Map<String, String>>) change);
+    }
+
+    private void releaseValues(Object row) {
+        if (!(row instanceof Row)) {
+            return;
+        }
+        String[] array = ((Row) row).getValues();
+        int size = array.length;
+        if (size > MAX_POOLED_COLUMNS) {
+            return;
+        }
+        ArrayBlockingQueue<String[]> arrays = this.values.get(size);
+        if (arrays == null) {
+            this.values.compareAndSet(size, null, new ArrayBlockingQueue<>(this.capacity));
+            arrays = this.values.get(size);
+        }
+        Arrays.fill(array, null);
+        arrays.offer(array);
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ *   Copyright 2019 the original author or authors.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *        https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+
+package com.github.pandaxz.events.dto;
+
+import org.postgresql.replication.LogSequenceNumber;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Changes decoded from one replication message. For wal2json format-version 1 it is the whole transaction, for
+ * streaming formats it is a part of transaction and only the last change set of transaction is commit.
+ *
+ * @author Uladzislau Belykh
+ */
+public class ChangeSet {
+
+    private List<Change<Map<String, String>>> changes;
+    private LogSequenceNumber nextLsn;
+    private String commitTime;
+    private boolean commit;
+
+    public ChangeSet() {
+    }
+
+    public ChangeSet(List<Change<Map<String, String>>> changes, LogSequenceNumber nextLsn, String commitTime, boolean commit) {
+        this.changes = changes;
+        this.nextLsn = nextLsn;
+        this.commitTime = commitTime;
+        this.commit = commit;
+    }
+
+    public List<Change<Map<String, String>>> getChanges() {
+        return changes;
+    }
+
+    public void setChanges(List<Change<Map<String, String>>> changes) {
+        this.changes = changes;
+    }
+
+    public LogSequenceNumber getNextLsn() {
+        return nextLsn;
+    }
+
+    public void setNextLsn(LogSequenceNumber nextLsn) {
+        this.nextLsn = nextLsn;
+    }
+
+    public String getCommitTime() {
+        return commitTime;
+    }
+
+    public void setCommitTime(String commitTime) {
+        this.commitTime = commitTime;
+    }
+
+    /**
+     * Check is change set finishes transaction, so it can be committed.
+     *
+     * @return the boolean
+     */
+    public boolean isCommit() {
+        return commit;
+    }
+
+    public void setCommit(boolean commit) {
+        this.commit = commit;
+    }
+
+    @Override
+    public String toString() {
+        return "ChangeSet{" +
+                "changes=" + changes +
+                ", nextLsn=" + nextLsn +
+                ", commitTime='" + commitTime + '\'' +
+                ", commit=" + commit +
+                '}';
+    }
+}
@@ -0,0 +1,29 @@
+/*
+ *   Copyright 2019 the original author or authors.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *        https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+
+package com.github.pandaxz.events.dto;
+
+/**
+ * Storage type of column value in {@link Row}. Values of typed columns are parsed once by decoder and kept in
+ * primitive form, other values are kept only as text.
+ *
+ * @author Uladzislau Belykh
+ */
+public enum ColumnType {
+    TEXT, LONG, DOUBLE, BOOLEAN;
+}
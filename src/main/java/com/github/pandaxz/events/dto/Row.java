@@ -0,0 +1,385 @@
+/*
+ *   Copyright 2019 the original author or authors.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *        https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+
+package com.github.pandaxz.events.dto;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Row values stored in flat array by indexes of shared {@link RowSchema}. It is a read only {@link Map} from column
+ * name to value, so it can be used everywhere as column map. Column can be absent in row, e.g. unchanged toasted
+ * value, then it is not present in map view.
+ * <p>
+ * If schema has column types, values of typed columns are parsed once, when row is created, and kept in primitive
+ * array without boxing, so {@link #getLong(int)}, {@link #getDouble(int)} and {@link #getBoolean(int)} do not parse
+ * text. Text of typed value is not kept, if it is formatted back from primitive without change, and map view formats
+ * it on every access. For text columns these methods parse value on every call.
+ * <p>
+ * Lazy row keeps raw message and bounds of values and decodes text value on the first access, so values that are
+ * never read are never decoded. Typed values are decoded when row is created. Lazy row keeps whole message in memory,
+ * while row is referenced.
+ *
+ * @author Uladzislau Belykh
+ */
+public class Row extends AbstractMap<String, String> {
+    private static final String NOT_DECODED = new String();
+    private static final String PRIMITIVE = new String();
+    private static final long BOOLEAN_TEXT = 2;
+
+    private final RowSchema schema;
+    private final String[] values;
+    private final long[] primitives;
+    private final ValueSource source;
+    private final int[] bounds;
+    private boolean[] absent;
+    private int absentCount;
+    private Set<Entry<String, String>> entrySet;
+
+    /**
+     * Instantiates a new Row with all columns present.
+     *
+     * @param schema the schema
+     * @param values the values by column indexes, array is not copied and text of typed values is removed from it
+     */
+    public Row(RowSchema schema, String[] values) {
+        if (values.length != schema.size()) {
+            throw new IllegalArgumentException("Row of " + schema.getTable() + " should have " + schema.size() + " values");
+        }
+        this.schema = schema;
+        this.values = values;
+        this.source = null;
+        this.bounds = null;
+        this.primitives = schema.hasTypes() ? parse() : null;
+    }
+
+    /**
+     * Instantiates a new lazy Row with all columns present.
+     *
+     * @param schema the schema
+     * @param source the raw message
+     * @param bounds the start and end of every value in message by column indexes, start is -1 for null value,
+     *               array is not copied
+     */
+    public Row(RowSchema schema, ValueSource source, int[] bounds) {
+        if (bounds.length != schema.size() * 2) {
+            throw new IllegalArgumentException("Row of " + schema.getTable() + " should have bounds of " + schema.size() + " values");
+        }
+        this.schema = schema;
+        this.source = source;
+        this.bounds = bounds;
+        this.values = new String[schema.size()];
+        for (int i = 0; i < this.values.length; i++) {
+            this.values[i] = bounds[i * 2] < 0 ? null : NOT_DECODED;
+        }
+        this.primitives = schema.hasTypes() ? parse() : null;
+    }
+
+    /**
+     * Mark column as absent in row. It is used by decoders while row is built.
+     *
+     * @param index the column index
+     */
+    public void markAbsent(int index) {
+        if (this.absent == null) {
+            this.absent = new boolean[this.values.length];
+        }
+        if (!this.absent[index]) {
+            this.absent[index] = true;
+            this.absentCount++;
+        }
+    }
+
+    public RowSchema getSchema() {
+        return schema;
+    }
+
+    String[] getValues() {
+        return values;
+    }
+
+    /**
+     * Check is column present in row.
+     *
+     * @param index the column index
+     * @return the boolean
+     */
+    public boolean isPresent(int index) {
+        return this.absent == null || !this.absent[index];
+    }
+
+    /**
+     * Gets value by column index.
+     *
+     * @param index the column index
+     * @return the value, null if value is null or column is absent
+     */
+    public String get(int index) {
+        if (!isPresent(index)) {
+            return null;
+        }
+        String value = this.values[index];
+        if (value == PRIMITIVE) {
+            return format(index);
+        }
+        if (value == NOT_DECODED) {
+            // concurrent readers decode the same value, string is safely published by its final fields
+            value = this.source.decode(this.bounds[index * 2], this.bounds[index * 2 + 1]);
+            this.values[index] = value;
+        }
+        return value;
+    }
+
+    /**
+     * Check is value null or absent.
+     *
+     * @param index the column index
+     * @return the boolean
+     */
+    public boolean isNull(int index) {
+        return !isPresent(index) || this.values[index] == null;
+    }
+
+    /**
+     * Gets value as long.
+     *
+     * @param index the column index
+     * @return the value, 0 if value is null
+     */
+    public long getLong(int index) {
+        if (isNull(index)) {
+            return 0;
+        }
+        switch (this.schema.getType(index)) {
+            case LONG:
+                return this.primitives[index];
+            case BOOLEAN:
+                return this.primitives[index] & 1;
+            case DOUBLE:
+                return (long) Double.longBitsToDouble(this.primitives[index]);
+            default:
+                return Long.parseLong(get(index));
+        }
+    }
+
+    /**
+     * Gets value as double.
+     *
+     * @param index the column index
+     * @return the value, 0 if value is null
+     */
+    public double getDouble(int index) {
+        if (isNull(index)) {
+            return 0;
+        }
+        switch (this.schema.getType(index)) {
+            case DOUBLE:
+                return Double.longBitsToDouble(this.primitives[index]);
+            case LONG:
+                return this.primitives[index];
+            case BOOLEAN:
+                return this.primitives[index] & 1;
+            default:
+                return Double.parseDouble(get(index));
+        }
+    }
+
+    /**
+     * Gets value as boolean, text values 't' and 'true' are true.
+     *
+     * @param index the column index
+     * @return the value, false if value is null
+     */
+    public boolean getBoolean(int index) {
+        if (isNull(index)) {
+            return false;
+        }
+        if (this.schema.getType(index) == ColumnType.TEXT) {
+            return parseBoolean(get(index));
+        }
+        return (this.primitives[index] & 1) != 0;
+    }
+
+    /**
+     * Gets value of column as long.
+     *
+     * @param column the column name
+     * @return the value, 0 if value is null
+     */
+    public long getLong(String column) {
+        return getLong(indexOf(column));
+    }
+
+    /**
+     * Gets value of column as double.
+     *
+     * @param column the column name
+     * @return the value, 0 if value is null
+     */
+    public double getDouble(String column) {
+        return getDouble(indexOf(column));
+    }
+
+    /**
+     * Gets value of column as boolean.
+     *
+     * @param column the column name
+     * @return the value, false if value is null
+     */
+    public boolean getBoolean(String column) {
+        return getBoolean(indexOf(column));
+    }
+
+    @Override
+    public String get(Object key) {
+        int index = this.schema.indexOf(key);
+        return index < 0 ? null : get(index);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        int index = this.schema.indexOf(key);
+        return index >= 0 && isPresent(index);
+    }
+
+    @Override
+    public int size() {
+        return this.values.length - this.absentCount;
+    }
+
+    @Override
+    public Set<Entry<String, String>> entrySet() {
+        if (this.entrySet == null) {
+            this.entrySet = new EntrySet();
+        }
+        return this.entrySet;
+    }
+
+    private class EntrySet extends AbstractSet<Entry<String, String>> {
+
+        @Override
+        public Iterator<Entry<String, String>> iterator() {
+            return new Iterator<Entry<String, String>>() {
+                private int next = skipAbsent(0);
+
+                @Override
+                public boolean hasNext() {
+                    return next < values.length;
+                }
+
+                @Override
+                public Entry<String, String> next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    int index = next;
+                    next = skipAbsent(index + 1);
+                    return new SimpleImmutableEntry<>(schema.getName(index), get(index));
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return Row.this.size();
+        }
+    }
+
+    private int indexOf(String column) {
+        int index = this.schema.indexOf(column);
+        if (index < 0) {
+            throw new IllegalArgumentException("Table " + this.schema.getTable() + " has no column " + column);
+        }
+        return index;
+    }
+
+    private long[] parse() {
+        long[] primitives = new long[this.values.length];
+        for (int i = 0; i < this.values.length; i++) {
+            ColumnType type = this.schema.getType(i);
+            String value = type == ColumnType.TEXT ? null : get(i);
+            if (value == null) {
+                continue;
+            }
+            boolean formatted;
+            switch (type) {
+                case LONG:
+                    primitives[i] = Long.parseLong(value);
+                    formatted = isCanonicalLong(value);
+                    break;
+                case DOUBLE:
+                    double number = Double.parseDouble(value);
+                    primitives[i] = Double.doubleToRawLongBits(number);
+                    formatted = Double.toString(number).equals(value);
+                    break;
+                case BOOLEAN:
+                    primitives[i] = (parseBoolean(value) ? 1 : 0) | (value.length() > 1 ? BOOLEAN_TEXT : 0);
+                    formatted = "t".equals(value) || "f".equals(value) || "true".equals(value) || "false".equals(value);
+                    break;
+                default:
+                    formatted = false;
+                    break;
+            }
+            if (formatted) {
+                this.values[i] = PRIMITIVE;
+            }
+        }
+        return primitives;
+    }
+
+    /**
+     * Formats typed value, which text is not kept, in the same form as it is received.
+     */
+    private String format(int index) {
+        long primitive = this.primitives[index];
+        switch (this.schema.getType(index)) {
+            case LONG:
+                return Long.toString(primitive);
+            case DOUBLE:
+                return Double.toString(Double.longBitsToDouble(primitive));
+            default:
+                if ((primitive & BOOLEAN_TEXT) != 0) {
+                    return (primitive & 1) != 0 ? "true" : "false";
+                }
+                return (primitive & 1) != 0 ? "t" : "f";
+        }
+    }
+
+    private static boolean isCanonicalLong(String value) {
+        int start = value.charAt(0) == '-' ? 1 : 0;
+        if (value.charAt(0) == '+') {
+            return false;
+        }
+        return value.charAt(start) != '0' || value.length() == 1;
+    }
+
+    private static boolean parseBoolean(String value) {
+        return "t".equals(value) || "true".equals(value);
+    }
+
+    private int skipAbsent(int index) {
+        while (index < this.values.length && !isPresent(index)) {
+            index++;
+        }
+        return index;
+    }
+}
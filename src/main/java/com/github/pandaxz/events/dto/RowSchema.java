@@ -0,0 +1,122 @@
+/*
+ *   Copyright 2019 the original author or authors.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *        https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+
+package com.github.pandaxz.events.dto;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Column names of table, shared by all {@link Row}s of the table. Names are interned and mapped to column indexes.
+ * Schema can have {@link ColumnType}s of columns, then values of typed columns are kept by rows in primitive form.
+ * Instance is immutable and thread safe.
+ *
+ * @author Uladzislau Belykh
+ */
+public class RowSchema {
+    private final String table;
+    private final String[] names;
+    private final Map<String, Integer> indexes;
+    private final ColumnType[] types;
+
+    public RowSchema(String table, String[] names) {
+        this(table, names, null);
+    }
+
+    /**
+     * Instantiates a new Row schema with column types.
+     *
+     * @param table the table
+     * @param names the column names
+     * @param types the column types by column indexes, null if all columns are text
+     */
+    public RowSchema(String table, String[] names, ColumnType[] types) {
+        if (types != null && types.length != names.length) {
+            throw new IllegalArgumentException("Schema of " + table + " should have type of every column");
+        }
+        this.table = table;
+        this.types = types == null || isText(types) ? null : types.clone();
+        this.names = new String[names.length];
+        this.indexes = new HashMap<>((int) (names.length / 0.75f) + 1);
+        for (int i = 0; i < names.length; i++) {
+            this.names[i] = names[i].intern();
+            this.indexes.put(this.names[i], i);
+        }
+    }
+
+    public String getTable() {
+        return table;
+    }
+
+    public int size() {
+        return names.length;
+    }
+
+    public String getName(int index) {
+        return names[index];
+    }
+
+    /**
+     * Gets type of column.
+     *
+     * @param index the column index
+     * @return the type
+     */
+    public ColumnType getType(int index) {
+        return types == null ? ColumnType.TEXT : types[index];
+    }
+
+    /**
+     * Check is there columns with primitive form.
+     *
+     * @return the boolean
+     */
+    public boolean hasTypes() {
+        return types != null;
+    }
+
+    /**
+     * Gets index of column.
+     *
+     * @param name the column name
+     * @return the index or -1 if there is no such column
+     */
+    public int indexOf(Object name) {
+        Integer index = indexes.get(name);
+        return index == null ? -1 : index;
+    }
+
+    private static boolean isText(ColumnType[] types) {
+        for (ColumnType type : types) {
+            if (type != ColumnType.TEXT) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return "RowSchema{" +
+                "table='" + table + '\'' +
+                ", names=" + Arrays.toString(names) +
+                ", types=" + Arrays.toString(types) +
+                '}';
+    }
+}
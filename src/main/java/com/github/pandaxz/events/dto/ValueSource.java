@@ -0,0 +1,37 @@
+/*
+ *   Copyright 2019 the original author or authors.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *        https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+
+package com.github.pandaxz.events.dto;
+
+/**
+ * Raw replication message that values of lazy {@link Row} are decoded from. Implementation should not change its
+ * state on decode, values can be decoded from several threads.
+ *
+ * @author Uladzislau Belykh
+ */
+public interface ValueSource {
+
+    /**
+     * Decode value from bytes of message between start and end.
+     *
+     * @param start the start
+     * @param end   the end
+     * @return the value
+     */
+    String decode(int start, int end);
+}
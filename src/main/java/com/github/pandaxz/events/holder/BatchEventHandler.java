@@ -0,0 +1,46 @@
+/*
+ *   Copyright 2019 the original author or authors.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *        https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package com.github.pandaxz.events.holder;
+
+import com.github.pandaxz.events.dto.Change;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Handler that receives batch of changes polled from queue at once. Batch size and linger are configured by
+ * {@link EventQueueConfig}. List and changes should not be kept after handling, list is reused by queue.
+ *
+ * @author Uladzislau Belykh
+ */
+@FunctionalInterface
+public interface BatchEventHandler extends EventHandler {
+
+    /**
+     * Handles batch of changes in order of queue.
+     *
+     * @param events the changes
+     */
+    void handle(List<Change<Map<String, String>>> events);
+
+    @Override
+    default void handle(Change<Map<String, String>> event) {
+        handle(Collections.singletonList(event));
+    }
+}
@@ -18,16 +18,20 @@
 package com.github.pandaxz.events.holder;
 
 import com.github.pandaxz.events.dto.Change;
+import com.github.pandaxz.events.holder.filter.ChangeFilter;
+import com.github.pandaxz.events.holder.limit.TableCredits;
 import com.github.pandaxz.events.holder.resolver.EventQueueResolver;
 import com.github.pandaxz.events.holder.statistic.EventHolderStatisticHandler;
 import com.github.pandaxz.events.holder.statistic.EventQueueStatisticHandler;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
 
 /**
@@ -35,87 +39,222 @@ import java.util.concurrent.Executor;
  */
 public class CommonEventQueueHolder implements EventQueueHolder {
 
-    private CountLatch countLatch;
+    private TableCredits credits;
     private String table;
-    private List<EventQueue> queues;
+    private volatile QueueRouting<EventQueue> routing;
+    private CompletableFuture<Void> migration;
+    private EventHolderStatisticHandler statisticHandler;
     private Set<EventHandler> handlers;
     private EventQueueResolver resolver;
+    private volatile Set<String> columns;
+    private volatile HandlerFilter[] handlerFilters;
     private Executor pollerExecutor;
     private Executor handlerExecutor;
     private Integer queueCount;
     private Integer queueLimit;
+    private EventQueueConfig eventQueueConfig = new EventQueueConfig();
 
-    public CommonEventQueueHolder(String table, int queueCount, EventQueueResolver resolver, CountLatch countLatch) {
+    public CommonEventQueueHolder(String table, int queueCount, EventQueueResolver resolver, TableCredits credits) {
         this.table = table;
         this.handlers = new HashSet<>();
         this.resolver = resolver;
+        this.handlerFilters = new HandlerFilter[0];
+        this.columns = HandlerColumns.union(table, resolver, this.handlers);
         this.queueCount = queueCount;
         this.queueLimit = 0;
-        this.countLatch = countLatch;
+        this.credits = credits;
     }
 
-    public CommonEventQueueHolder(String table, int queueCount, EventQueueResolver resolver, int queueLimit, CountLatch countLatch) {
+    public CommonEventQueueHolder(String table, int queueCount, EventQueueResolver resolver, int queueLimit, TableCredits credits) {
         this.table = table;
         this.handlers = new HashSet<>();
         this.resolver = resolver;
+        this.handlerFilters = new HandlerFilter[0];
+        this.columns = HandlerColumns.union(table, resolver, this.handlers);
         this.queueCount = queueCount;
         this.queueLimit = queueLimit;
-        this.countLatch = countLatch;
+        this.credits = credits;
     }
 
-    public CommonEventQueueHolder(String table, int queueCount, EventQueueResolver resolver, int queueLimit, CountLatch countLatch,
+    public CommonEventQueueHolder(String table, int queueCount, EventQueueResolver resolver, int queueLimit, TableCredits credits,
                                   Executor pollerExecutor, Executor handlerExecutor) {
         this.table = table;
         this.handlers = new HashSet<>();
         this.resolver = resolver;
+        this.handlerFilters = new HandlerFilter[0];
+        this.columns = HandlerColumns.union(table, resolver, this.handlers);
         this.pollerExecutor = pollerExecutor;
         this.handlerExecutor = handlerExecutor;
         this.queueCount = queueCount;
         this.queueLimit = queueLimit;
-        this.countLatch = countLatch;
+        this.credits = credits;
     }
 
     @Override
     public void init(EventHolderStatisticHandler statisticHandler) {
-        if (this.queues == null) {
-            this.queues = new ArrayList<>();
+        if (this.routing == null) {
+            this.statisticHandler = statisticHandler;
+            List<EventQueue> queues = new ArrayList<>();
             for (int i = 0; i < this.queueCount; i++) {
-                EventQueueStatisticHandler eventQueueStatisticHandler = new EventQueueStatisticHandler(this.table, i, statisticHandler, null);
-                EventQueue queue = new EventQueue(this.handlers, this.pollerExecutor, eventQueueStatisticHandler, queueLimit, countLatch,
-                        this.handlerExecutor);
-                this.queues.add(queue);
+                queues.add(createQueue(i));
             }
+            updateSiblings(queues);
+            this.routing = new QueueRouting<>(queues, Collections::singletonList);
         }
     }
 
     @Override
     public void add(Change<Map<String, String>> event) {
-        EventQueue eventQueue = getEventQueue(event);
-        eventQueue.add(event);
+        List<EventHandler> accepted = accepted(event);
+        if (accepted != null && accepted.isEmpty()) {
+            return;
+        }
+        EventQueue eventQueue = this.routing.get(this.resolver, event, this.eventQueueConfig.getWaitStrategy());
+        eventQueue.add(event, accepted);
+    }
+
+    @Override
+    public void route(Change<Map<String, String>> event, EventRoutes routes) {
+        List<EventHandler> accepted = accepted(event);
+        if (accepted != null && accepted.isEmpty()) {
+            return;
+        }
+        routes.add(event, this, this.routing.get(this.resolver, event, this.eventQueueConfig.getWaitStrategy()), accepted);
+    }
+
+    /**
+     * Gets handlers which accept change by their filters.
+     *
+     * @return the handlers or null if all handlers accept change
+     */
+    private List<EventHandler> accepted(Change<Map<String, String>> event) {
+        HandlerFilter[] handlerFilters = this.handlerFilters;
+        List<EventHandler> accepted = null;
+        for (int i = 0; i < handlerFilters.length; i++) {
+            if (handlerFilters[i].filter.test(event)) {
+                if (accepted != null) {
+                    accepted.add(handlerFilters[i].handler);
+                }
+            } else if (accepted == null) {
+                accepted = new ArrayList<>(handlerFilters.length);
+                for (int j = 0; j < i; j++) {
+                    accepted.add(handlerFilters[j].handler);
+                }
+            }
+        }
+        return accepted;
     }
 
     @Override
     public void registerHandler(EventHandler handler) {
         this.handlers.add(handler);
+        updateHandlers();
     }
 
     @Override
     public void unregisterHandler(EventHandler handler) {
         this.handlers.remove(handler);
+        updateHandlers();
+    }
+
+    @Override
+    public Set<String> getColumns() {
+        return this.columns;
+    }
+
+    @Override
+    public void setEventQueueConfig(EventQueueConfig config) {
+        this.eventQueueConfig = config;
+    }
+
+    @Override
+    public synchronized CompletableFuture<Void> resize(int queueCount) {
+        if (queueCount <= 0) {
+            throw new IllegalArgumentException("Queue count should be positive");
+        }
+        if (this.migration != null && !this.migration.isDone()) {
+            throw new IllegalStateException("Previous resize of queues is not completed");
+        }
+        QueueRouting<EventQueue> routing = this.routing;
+        this.queueCount = queueCount;
+        if (routing == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        List<EventQueue> previousQueues = routing.getQueues();
+        int keptCount = Math.min(queueCount, previousQueues.size());
+        List<EventQueue> queues = new ArrayList<>(previousQueues.subList(0, keptCount));
+        for (int i = keptCount; i < queueCount; i++) {
+            queues.add(createQueue(i));
+        }
+        List<EventQueue> removedQueues = previousQueues.subList(keptCount, previousQueues.size());
+        QueueRouting<EventQueue> resized = routing.resize(queues, this.resolver.isOrdered());
+        this.routing = resized;
+        updateSiblings(queues);
+        Executor executor = EventQueue.executor(this.pollerExecutor, this.eventQueueConfig);
+        this.migration = EventQueue.runLoop(() -> {
+            try {
+                resized.awaitMigration(this.eventQueueConfig.getWaitStrategy().get());
+                for (EventQueue queue : removedQueues) {
+                    queue.close();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }, executor, "event-queue-migration");
+        return this.migration;
     }
 
     @Override
     public void close() throws IOException {
-        if (this.queues != null) {
-            for (EventQueue queue : this.queues) {
+        if (this.routing != null) {
+            if (this.migration != null) {
+                this.migration.join();
+            }
+            for (EventQueue queue : this.routing.getQueues()) {
                 queue.close();
             }
-            this.queues = null;
+            this.routing = null;
+        }
+    }
+
+    /**
+     * Check is work stealing mode used. It does not depend on queue count, so queues added by resize use the same mode.
+     */
+    private boolean isWorkStealing() {
+        return !this.resolver.isOrdered();
+    }
+
+    private EventQueue createQueue(int number) {
+        EventQueueStatisticHandler eventQueueStatisticHandler = new EventQueueStatisticHandler(this.table, number, this.statisticHandler, null);
+        return new EventQueue(this.handlers, this.pollerExecutor, eventQueueStatisticHandler, queueLimit, credits, this.handlerExecutor,
+                this.eventQueueConfig, isWorkStealing());
+    }
+
+    private void updateSiblings(List<EventQueue> queues) {
+        if (isWorkStealing()) {
+            for (EventQueue queue : queues) {
+                queue.setSiblings(queues);
+            }
         }
     }
 
-    private EventQueue getEventQueue(Change<Map<String, String>> event) {
-        int resolve = this.resolver.resolve(this.queueCount, event);
-        return this.queues.get(resolve);
+    private void updateHandlers() {
+        this.handlerFilters = this.handlers.stream()
+                .map(handler -> new HandlerFilter(handler, handler.getFilter(this.table)))
+                .toArray(HandlerFilter[]::new);
+        this.columns = HandlerColumns.union(this.table, this.resolver, this.handlers);
+    }
+
+    private static final class HandlerFilter {
+        private final EventHandler handler;
+        private final ChangeFilter filter;
+
+        private HandlerFilter(EventHandler handler, ChangeFilter filter) {
+            this.handler = handler;
+            this.filter = filter;
+        }
     }
 }
@@ -18,6 +18,8 @@
 package com.github.pandaxz.events.holder;
 
 import com.github.pandaxz.events.dto.Change;
+import com.github.pandaxz.events.holder.filter.ChangeFilter;
+import com.github.pandaxz.events.holder.limit.TableCredits;
 import com.github.pandaxz.events.holder.resolver.EventQueueResolver;
 import com.github.pandaxz.events.holder.statistic.EventHolderStatisticHandler;
 import com.github.pandaxz.events.holder.statistic.EventQueueStatisticHandler;
@@ -28,7 +30,9 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
+import java.util.function.Function;
 
 /**
  * @author Uladzislau Belykh
@@ -36,80 +40,160 @@ import java.util.concurrent.Executor;
 public class DistributedEventQueueHolder implements EventQueueHolder {
 
     private int queueLimit;
-    private CountLatch countLatch;
+    private TableCredits credits;
     private String table;
-    private List<Set<EventQueue>> queues;
+    private volatile QueueRouting<List<EventQueue>> routing;
+    private CompletableFuture<Void> migration;
+    private List<EventHandler> queueHandlers;
+    private ChangeFilter[] filters;
+    private EventHolderStatisticHandler statisticHandler;
     private Set<EventHandler> handlers;
     private EventQueueResolver resolver;
+    private volatile Set<String> columns;
     private Executor pollerExecutor;
     private Integer queueCount;
+    private EventQueueConfig eventQueueConfig = new EventQueueConfig();
 
-    public DistributedEventQueueHolder(String table, int queueCount, EventQueueResolver resolver, int queueLimit, CountLatch countLatch) {
+    public DistributedEventQueueHolder(String table, int queueCount, EventQueueResolver resolver, int queueLimit, TableCredits credits) {
         this.table = table;
         this.handlers = new HashSet<>();
         this.resolver = resolver;
+        this.columns = HandlerColumns.union(table, resolver, this.handlers);
         this.queueCount = queueCount;
-        this.countLatch = countLatch;
+        this.credits = credits;
         this.queueLimit = queueLimit;
     }
 
-    public DistributedEventQueueHolder(String table, int queueCount, EventQueueResolver resolver, int queueLimit, CountLatch countLatch, Executor pollerExecutor) {
+    public DistributedEventQueueHolder(String table, int queueCount, EventQueueResolver resolver, int queueLimit, TableCredits credits, Executor pollerExecutor) {
         this.table = table;
         this.handlers = new HashSet<>();
         this.resolver = resolver;
+        this.columns = HandlerColumns.union(table, resolver, this.handlers);
         this.pollerExecutor = pollerExecutor;
         this.queueCount = queueCount;
-        this.countLatch = countLatch;
+        this.credits = credits;
         this.queueLimit = queueLimit;
     }
 
     @Override
     public void init(EventHolderStatisticHandler statisticHandler) {
-        if (this.queues == null) {
-            this.queues = new ArrayList<>();
+        if (this.routing == null) {
+            this.statisticHandler = statisticHandler;
+            this.queueHandlers = new ArrayList<>(this.handlers);
+            this.filters = this.queueHandlers.stream().map(handler -> handler.getFilter(this.table)).toArray(ChangeFilter[]::new);
+            List<List<EventQueue>> queues = new ArrayList<>();
             for (int i = 0; i < this.queueCount; i++) {
-                Set<EventQueue> queues = new HashSet<>();
-                this.queues.add(queues);
-                for (EventHandler handler : this.handlers) {
-                    EventQueueStatisticHandler eventQueueStatisticHandler = new EventQueueStatisticHandler(this.table, i, statisticHandler,
-                            handler.getHandlerName());
-                    EventQueue queue = new EventQueue(handler, this.pollerExecutor, eventQueueStatisticHandler, queueLimit, countLatch);
-                    queues.add(queue);
-                }
+                queues.add(createQueues(i));
             }
+            this.routing = new QueueRouting<>(queues, Function.identity());
         }
     }
 
     @Override
     public void add(Change<Map<String, String>> event) {
-        Set<EventQueue> eventQueues = getEventQueue(event);
-        eventQueues.forEach(queue -> queue.add(event));
+        List<EventQueue> eventQueues = this.routing.get(this.resolver, event, this.eventQueueConfig.getWaitStrategy());
+        for (int i = 0; i < eventQueues.size(); i++) {
+            if (this.filters[i].test(event)) {
+                eventQueues.get(i).add(event);
+            }
+        }
+    }
+
+    @Override
+    public void route(Change<Map<String, String>> event, EventRoutes routes) {
+        List<EventQueue> eventQueues = this.routing.get(this.resolver, event, this.eventQueueConfig.getWaitStrategy());
+        for (int i = 0; i < eventQueues.size(); i++) {
+            if (this.filters[i].test(event)) {
+                routes.add(event, this, eventQueues.get(i), null);
+            }
+        }
     }
 
     @Override
     public void registerHandler(EventHandler handler) {
         this.handlers.add(handler);
+        this.columns = HandlerColumns.union(this.table, this.resolver, this.handlers);
     }
 
     @Override
     public void unregisterHandler(EventHandler handler) {
         this.handlers.remove(handler);
+        this.columns = HandlerColumns.union(this.table, this.resolver, this.handlers);
+    }
+
+    @Override
+    public Set<String> getColumns() {
+        return this.columns;
+    }
+
+    @Override
+    public void setEventQueueConfig(EventQueueConfig config) {
+        this.eventQueueConfig = config;
+    }
+
+    @Override
+    public synchronized CompletableFuture<Void> resize(int queueCount) {
+        if (queueCount <= 0) {
+            throw new IllegalArgumentException("Queue count should be positive");
+        }
+        if (this.migration != null && !this.migration.isDone()) {
+            throw new IllegalStateException("Previous resize of queues is not completed");
+        }
+        QueueRouting<List<EventQueue>> routing = this.routing;
+        this.queueCount = queueCount;
+        if (routing == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        List<List<EventQueue>> previousQueues = routing.getQueues();
+        int keptCount = Math.min(queueCount, previousQueues.size());
+        List<List<EventQueue>> queues = new ArrayList<>(previousQueues.subList(0, keptCount));
+        for (int i = keptCount; i < queueCount; i++) {
+            queues.add(createQueues(i));
+        }
+        List<List<EventQueue>> removedQueues = previousQueues.subList(keptCount, previousQueues.size());
+        QueueRouting<List<EventQueue>> resized = routing.resize(queues, this.resolver.isOrdered());
+        this.routing = resized;
+        Executor executor = EventQueue.executor(this.pollerExecutor, this.eventQueueConfig);
+        this.migration = EventQueue.runLoop(() -> {
+            try {
+                resized.awaitMigration(this.eventQueueConfig.getWaitStrategy().get());
+                for (List<EventQueue> queue : removedQueues) {
+                    for (EventQueue eventQueue : queue) {
+                        eventQueue.close();
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }, executor, "event-queue-migration");
+        return this.migration;
     }
 
     @Override
     public void close() throws IOException {
-        if (this.queues != null) {
-            for (Set<EventQueue> queue : this.queues) {
+        if (this.routing != null) {
+            if (this.migration != null) {
+                this.migration.join();
+            }
+            for (List<EventQueue> queue : this.routing.getQueues()) {
                 for (EventQueue eventQueue : queue) {
                     eventQueue.close();
                 }
             }
-            this.queues = null;
+            this.routing = null;
         }
     }
 
-    private Set<EventQueue> getEventQueue(Change<Map<String, String>> event) {
-        int resolve = this.resolver.resolve(this.queueCount, event);
-        return this.queues.get(resolve);
+    private List<EventQueue> createQueues(int number) {
+        List<EventQueue> queues = new ArrayList<>();
+        for (EventHandler handler : this.queueHandlers) {
+            EventQueueStatisticHandler eventQueueStatisticHandler = new EventQueueStatisticHandler(this.table, number, this.statisticHandler,
+                    handler.getHandlerName());
+            queues.add(new EventQueue(handler, this.pollerExecutor, eventQueueStatisticHandler, queueLimit, credits, this.eventQueueConfig));
+        }
+        return queues;
     }
 }
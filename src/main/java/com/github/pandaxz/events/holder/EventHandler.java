@@ -18,8 +18,10 @@
 package com.github.pandaxz.events.holder;
 
 import com.github.pandaxz.events.dto.Change;
+import com.github.pandaxz.events.holder.filter.ChangeFilter;
 
 import java.util.Map;
+import java.util.Set;
 
 /**
  * @author Uladzislau Belykh
@@ -31,4 +33,24 @@ public interface EventHandler {
     default String getHandlerName(){
         return this.getClass().getSimpleName();
     };
+
+    /**
+     * Gets columns of table that are read by handler, other columns are not decoded.
+     *
+     * @param table the table
+     * @return the columns or null if all columns are needed
+     */
+    default Set<String> getColumns(String table) {
+        return null;
+    }
+
+    /**
+     * Gets filter of table changes, rejected changes are not queued for handler.
+     *
+     * @param table the table
+     * @return the filter
+     */
+    default ChangeFilter getFilter(String table) {
+        return ChangeFilter.ALL;
+    }
 }
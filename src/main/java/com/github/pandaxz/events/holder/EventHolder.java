@@ -18,66 +18,91 @@
 package com.github.pandaxz.events.holder;
 
 import com.github.pandaxz.events.dto.Change;
+import com.github.pandaxz.events.holder.limit.TableCredits;
 import com.github.pandaxz.events.holder.resolver.EventQueueResolver;
+import com.github.pandaxz.events.holder.resolver.RoundRobinEventQueueResolver;
 import com.github.pandaxz.events.holder.resolver.SimpleEventQueueResolver;
 import com.github.pandaxz.events.holder.statistic.EventHolderStatisticHandler;
 import com.github.pandaxz.events.holder.statistic.SimpleEventHolderStatisticHandler;
+import com.github.pandaxz.events.idle.IdleStrategy;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
-import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
  * @author Uladzislau Belykh
  */
 public class EventHolder implements Closeable {
 
-    private static final int DEFAULT_COUNT = 10;
     private Map<String, EventQueueHolder> holders;
+    private Map<String, TableCredits> credits;
+    private final TableCredits globalCredits = new TableCredits(null);
+    private final Map<String, Integer> awaitedTables = new ConcurrentHashMap<>();
     private long delay = 30;
     private volatile boolean isReceiving = true;
-    private final Semaphore semaphore = new Semaphore(DEFAULT_COUNT);
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
     private EventHolderStatisticHandler statisticHandler = new SimpleEventHolderStatisticHandler();
-    private CountLatch countLatch = new CountLatch(0, 0);
+    private EventQueueConfig eventQueueConfig = new EventQueueConfig();
 
     public EventHolder() {
         this.holders = new HashMap<>();
+        this.credits = new HashMap<>();
     }
 
+    /**
+     * Adds changes to queues of their tables. Queues of all changes are resolved first, if global credits, credits of
+     * tables changed by batch or credits of resolved queues are exhausted, waits for them up to delay. Other queues do
+     * not block batch.
+     *
+     * @param events the changes
+     * @return true, if changes are added, or false if credits are not available during delay
+     */
     public boolean add(List<Change<Map<String, String>>> events) {
         if (!isReceiving) {
             throw new RuntimeException("Data holder stop work");
         }
+        lock.readLock().lock();
         try {
-            semaphore.acquire();
-        } catch (InterruptedException e) {
-        }
-        try {
-            if (!countLatch.await(delay, TimeUnit.SECONDS)) {
-                return false;
-            }
+            EventRoutes routes = new EventRoutes();
             for (Change<Map<String, String>> event : events) {
                 EventQueueHolder eventQueueHolder = holders.get(event.getTable());
                 if (eventQueueHolder != null) {
-                    eventQueueHolder.add(event);
+                    eventQueueHolder.route(event, routes);
                 }
             }
+            if (!awaitCredits(events, routes)) {
+                return false;
+            }
+            routes.apply();
             return true;
-        } catch (InterruptedException e) {
-            throw new RuntimeException(e);
         } finally {
-            semaphore.release();
+            for (Change<Map<String, String>> event : events) {
+                event.release();
+            }
+            lock.readLock().unlock();
         }
     }
 
     public void init() {
+        if (this.delay > 0) {
+            this.eventQueueConfig.setOfferTimeout(this.delay, TimeUnit.SECONDS);
+        }
         for (EventQueueHolder value : this.holders.values()) {
+            value.setEventQueueConfig(this.eventQueueConfig);
             value.init(this.statisticHandler);
         }
     }
@@ -86,7 +111,7 @@ public class EventHolder implements Closeable {
         if (queueLimit < 0 || queueCount < 0) {
             throw new IllegalArgumentException();
         }
-        holders.put(table, new CommonEventQueueHolder(table, queueCount, resolver, queueLimit, countLatch));
+        holders.put(table, new CommonEventQueueHolder(table, queueCount, resolver, queueLimit, createCredits(table)));
     }
 
     public void registerCommonHolder(String table, int queueCount, EventQueueResolver resolver, int queueLimit, Executor pollerExecutor,
@@ -94,29 +119,85 @@ public class EventHolder implements Closeable {
         if (queueLimit < 0 || queueCount < 0) {
             throw new IllegalArgumentException();
         }
-        holders.put(table, new CommonEventQueueHolder(table, queueCount, resolver, queueLimit, countLatch, pollerExecutor, handlerExecutor));
+        holders.put(table, new CommonEventQueueHolder(table, queueCount, resolver, queueLimit, createCredits(table), pollerExecutor,
+                handlerExecutor));
+    }
+
+    /**
+     * Registers common holder for table, which changes do not need ordering. Changes are distributed between queues by
+     * round robin and idle queues steal changes from busy ones.
+     *
+     * @param table      the table
+     * @param queueCount the queue count
+     * @param queueLimit the queue limit
+     */
+    public void registerParallelHolder(String table, int queueCount, int queueLimit) {
+        registerCommonHolder(table, queueCount, new RoundRobinEventQueueResolver(), queueLimit);
+    }
+
+    /**
+     * Registers common holder for table, which changes do not need ordering. Changes are distributed between queues by
+     * round robin and idle queues steal changes from busy ones.
+     *
+     * @param table           the table
+     * @param queueCount      the queue count
+     * @param queueLimit      the queue limit
+     * @param pollerExecutor  the poller executor
+     * @param handlerExecutor the handler executor
+     */
+    public void registerParallelHolder(String table, int queueCount, int queueLimit, Executor pollerExecutor, Executor handlerExecutor) {
+        registerCommonHolder(table, queueCount, new RoundRobinEventQueueResolver(), queueLimit, pollerExecutor, handlerExecutor);
     }
 
     public void registerDistributedHolder(String table, int queueCount, EventQueueResolver resolver, int queueLimit) {
         if (queueLimit < 0 || queueCount < 0) {
             throw new IllegalArgumentException();
         }
-        holders.put(table, new DistributedEventQueueHolder(table, queueCount, resolver, queueLimit, countLatch));
+        holders.put(table, new DistributedEventQueueHolder(table, queueCount, resolver, queueLimit, createCredits(table)));
     }
 
     public void registerDistributedHolder(String table, int queueCount, EventQueueResolver resolver, int queueLimit, Executor pollerExecutor) {
         if (queueLimit < 0 || queueCount < 0) {
             throw new IllegalArgumentException();
         }
-        holders.put(table, new DistributedEventQueueHolder(table, queueCount, resolver, queueLimit, countLatch, pollerExecutor));
+        holders.put(table, new DistributedEventQueueHolder(table, queueCount, resolver, queueLimit, createCredits(table),
+                pollerExecutor));
+    }
+
+    /**
+     * Changes queue count of holder of table at runtime, see {@link EventQueueHolder#resize(int)}. Adding of changes is
+     * paused only while queues are replaced, changes of moved keys wait until their previous queues handle changes
+     * added before resize.
+     *
+     * @param table      the table
+     * @param queueCount the queue count
+     * @return the future that is completed when migration of moved keys is completed
+     */
+    public CompletableFuture<Void> resizeHolder(String table, int queueCount) {
+        if (queueCount <= 0) {
+            throw new IllegalArgumentException();
+        }
+        EventQueueHolder eventQueueHolder = holders.get(table);
+        if (eventQueueHolder == null) {
+            throw new IllegalArgumentException("There is no holder of table " + table);
+        }
+        lock.writeLock().lock();
+        try {
+            return eventQueueHolder.resize(queueCount);
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
     public void unregisterHolder(String table) {
         holders.remove(table);
+        credits.remove(table);
     }
 
     public void registerHandler(String table, EventHandler handler) {
-        holders.putIfAbsent(table, new CommonEventQueueHolder(table, 1, new SimpleEventQueueResolver(), countLatch));
+        if (!holders.containsKey(table)) {
+            holders.put(table, new CommonEventQueueHolder(table, 1, new SimpleEventQueueResolver(), createCredits(table)));
+        }
         holders.get(table).registerHandler(handler);
     }
 
@@ -127,11 +208,125 @@ public class EventHolder implements Closeable {
         }
     }
 
+    /**
+     * Gets columns of table that are needed by registered handlers and resolver.
+     *
+     * @param table the table
+     * @return the columns, empty if table is not registered, or null if all columns are needed
+     */
+    public Set<String> getColumns(String table) {
+        EventQueueHolder eventQueueHolder = holders.get(table);
+        if (eventQueueHolder == null) {
+            return Collections.emptySet();
+        }
+        return eventQueueHolder.getColumns();
+    }
+
+    /**
+     * Sets limit of not handled changes of table, see {@link TableCredits#setLimit(long)}.
+     *
+     * @param table the table
+     * @param limit the limit or 0 if table is limited only by limits of its queues
+     */
+    public void setTableLimit(String table, long limit) {
+        TableCredits tableCredits = credits.get(table);
+        if (tableCredits == null) {
+            throw new IllegalArgumentException("There is no holder of table " + table);
+        }
+        tableCredits.setLimit(limit);
+    }
+
+    /**
+     * Sets limit of estimated size of not handled changes of table, see {@link TableCredits#setByteLimit(long)}.
+     *
+     * @param table     the table
+     * @param byteLimit the limit in bytes or 0 if size is not limited
+     */
+    public void setTableByteLimit(String table, long byteLimit) {
+        TableCredits tableCredits = credits.get(table);
+        if (tableCredits == null) {
+            throw new IllegalArgumentException("There is no holder of table " + table);
+        }
+        tableCredits.setByteLimit(byteLimit);
+    }
+
+    /**
+     * Sets limit of estimated size of not handled changes of all tables. Every batch waits for global credits.
+     *
+     * @param byteLimit the limit in bytes or 0 if size is not limited
+     */
+    public void setByteLimit(long byteLimit) {
+        globalCredits.setByteLimit(byteLimit);
+    }
+
+    /**
+     * Sets limit of estimated size of changes in every queue, see {@link EventQueueConfig#setQueueByteLimit(long)}.
+     * Should be called before init.
+     *
+     * @param queueByteLimit the limit in bytes or 0 if size of queue is not limited
+     */
+    public void setQueueByteLimit(long queueByteLimit) {
+        eventQueueConfig.setQueueByteLimit(queueByteLimit);
+    }
+
+    /**
+     * Gets credits of all tables.
+     *
+     * @return the global credits
+     */
+    public TableCredits getGlobalCredits() {
+        return globalCredits;
+    }
+
+    /**
+     * Gets credits of table.
+     *
+     * @param table the table
+     * @return the credits or null if table is not registered
+     */
+    public TableCredits getCredits(String table) {
+        return credits.get(table);
+    }
+
+    /**
+     * Gets tables, which credits or queues are awaited by adding of changes now. Waiting for global credits is not
+     * included, see {@link #getGlobalCredits()}.
+     *
+     * @return the tables
+     */
+    public Set<String> getAwaitedTables() {
+        return Collections.unmodifiableSet(awaitedTables.keySet());
+    }
+
     public void setStatisticHandler(EventHolderStatisticHandler statisticHandler) {
         Objects.requireNonNull(statisticHandler);
         this.statisticHandler = statisticHandler;
     }
 
+    public EventQueueConfig getEventQueueConfig() {
+        return eventQueueConfig;
+    }
+
+    /**
+     * Sets configuration of event queues, it is used by init.
+     *
+     * @param eventQueueConfig the event queue config
+     */
+    public void setEventQueueConfig(EventQueueConfig eventQueueConfig) {
+        Objects.requireNonNull(eventQueueConfig);
+        this.eventQueueConfig = eventQueueConfig;
+    }
+
+    /**
+     * Enable virtual threads mode of event queues, see {@link EventQueueConfig#setVirtualThreads(boolean)}. Should be
+     * called before init.
+     *
+     * @param virtualThreads the virtual threads
+     */
+    public void setVirtualThreads(boolean virtualThreads) {
+        this.eventQueueConfig.setVirtualThreads(virtualThreads);
+    }
+
     public long getDelay() {
         return delay;
     }
@@ -143,9 +338,102 @@ public class EventHolder implements Closeable {
     @Override
     public void close() throws IOException {
         this.isReceiving = false;
-        semaphore.acquireUninterruptibly(DEFAULT_COUNT);
-        for (EventQueueHolder holder : holders.values()) {
-            holder.close();
+        lock.writeLock().lock();
+        try {
+            for (EventQueueHolder holder : holders.values()) {
+                holder.close();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private TableCredits createCredits(String table) {
+        TableCredits tableCredits = new TableCredits(table, globalCredits);
+        credits.put(table, tableCredits);
+        return tableCredits;
+    }
+
+    /**
+     * Waits up to delay for global credits, credits of tables and credits of queues, which changes of batch are added
+     * to, if they are exhausted. Queues of other tables and other queues of the same table do not block batch.
+     */
+    private boolean awaitCredits(List<Change<Map<String, String>>> events, EventRoutes routes) {
+        List<TableCredits> exhausted = null;
+        if (!globalCredits.isAvailable()) {
+            exhausted = new ArrayList<>();
+            exhausted.add(globalCredits);
+        }
+        for (Change<Map<String, String>> event : events) {
+            TableCredits tableCredits = credits.get(event.getTable());
+            if (tableCredits != null && !tableCredits.isAvailable()) {
+                if (exhausted == null) {
+                    exhausted = new ArrayList<>();
+                }
+                if (!exhausted.contains(tableCredits)) {
+                    exhausted.add(tableCredits);
+                }
+            }
+        }
+        List<Map.Entry<EventQueue, EventRoutes.Demand>> exhaustedQueues = null;
+        for (Map.Entry<EventQueue, EventRoutes.Demand> entry : routes.getDemands().entrySet()) {
+            if (!entry.getKey().hasCredits(entry.getValue().count, entry.getValue().bytes)) {
+                if (exhaustedQueues == null) {
+                    exhaustedQueues = new ArrayList<>();
+                }
+                exhaustedQueues.add(entry);
+            }
+        }
+        if (exhausted == null && exhaustedQueues == null) {
+            return true;
+        }
+        Set<String> tables = new HashSet<>();
+        if (exhausted != null) {
+            for (TableCredits tableCredits : exhausted) {
+                if (tableCredits.getTable() != null) {
+                    tables.add(tableCredits.getTable());
+                }
+            }
+        }
+        if (exhaustedQueues != null) {
+            for (Map.Entry<EventQueue, EventRoutes.Demand> entry : exhaustedQueues) {
+                tables.add(entry.getValue().table);
+            }
+        }
+        for (String table : tables) {
+            awaitedTables.merge(table, 1, Integer::sum);
+        }
+        try {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(delay);
+            IdleStrategy idleStrategy = eventQueueConfig.getWaitStrategy().get();
+            if (exhausted != null) {
+                for (TableCredits tableCredits : exhausted) {
+                    while (!tableCredits.isAvailable()) {
+                        if (System.nanoTime() - deadline >= 0) {
+                            return false;
+                        }
+                        idleStrategy.idle();
+                    }
+                }
+            }
+            if (exhaustedQueues != null) {
+                for (Map.Entry<EventQueue, EventRoutes.Demand> entry : exhaustedQueues) {
+                    while (!entry.getKey().hasCredits(entry.getValue().count, entry.getValue().bytes)) {
+                        if (System.nanoTime() - deadline >= 0) {
+                            return false;
+                        }
+                        idleStrategy.idle();
+                    }
+                }
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } finally {
+            for (String table : tables) {
+                awaitedTables.computeIfPresent(table, (key, count) -> count == 1 ? null : count - 1);
+            }
         }
     }
 }
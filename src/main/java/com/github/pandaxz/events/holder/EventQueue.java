@@ -21,7 +21,9 @@ import com.github.pandaxz.events.dto.Change;
 import com.github.pandaxz.events.holder.limit.LimitObserver;
 import com.github.pandaxz.events.holder.limit.LimitObserverImpl;
 import com.github.pandaxz.events.holder.limit.NoLimitObserverImpl;
+import com.github.pandaxz.events.holder.limit.TableCredits;
 import com.github.pandaxz.events.holder.statistic.EventQueueStatisticHandler;
+import com.github.pandaxz.events.idle.IdleStrategy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -29,12 +31,18 @@ import java.io.Closeable;
 import java.io.IOException;
 import java.time.Clock;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
 
 /**
  * @author Uladzislau Belykh
@@ -45,80 +53,146 @@ public class EventQueue implements Closeable {
     private volatile boolean isReceiving = true;
     private volatile boolean isHandling = true;
     private CompletableFuture poller;
-    private BlockingQueue<Change<Map<String, String>>> eventQueue = new LinkedBlockingQueue<>();
+    private EventRingBuffer ringBuffer;
+    private Supplier<IdleStrategy> waitStrategy;
+    private long offerTimeoutNanos;
+    private final QueueSignal published = new QueueSignal();
+    private final QueueSignal freed = new QueueSignal();
     private EventQueueStatisticHandler statisticHandler;
     private LimitObserver limitObserver;
+    private volatile List<EventQueue> siblings = Collections.emptyList();
+    private final List<Change<Map<String, String>>> batch = new ArrayList<>();
+    private final List<Collection<EventHandler>> batchHandlers = new ArrayList<>();
+    private boolean filtered;
 
     public EventQueue(EventHandler handler, Executor pollerExecutor, EventQueueStatisticHandler eventQueueStatisticHandler, int queueLimit,
-                      CountLatch countLatch) {
-        if(queueLimit > 0) {
-            this.limitObserver = new LimitObserverImpl(queueLimit, countLatch);
-        }else{
-            this.limitObserver = new NoLimitObserverImpl();
-        }
-        this.statisticHandler = eventQueueStatisticHandler;
-        Runnable eventHandler = () -> {
-            try {
-                while (this.isHandling) {
-                    Change<Map<String, String>> event = this.eventQueue.take();
-                    this.statisticHandler.eventPolledFromQueue(Instant.now(Clock.systemUTC()), event);
-                    handleEvent(event, handler);
-                    this.statisticHandler.eventHandled(Instant.now(Clock.systemUTC()), event);
-                    this.limitObserver.delete();
-                }
-            } catch (Exception e) {
-            }
-        };
+                      TableCredits credits) {
+        this(handler, pollerExecutor, eventQueueStatisticHandler, queueLimit, credits, new EventQueueConfig());
+    }
 
-        if (pollerExecutor == null) {
-            this.poller = CompletableFuture.runAsync(eventHandler);
-        } else {
-            this.poller = CompletableFuture.runAsync(eventHandler, pollerExecutor);
-        }
+    public EventQueue(EventHandler handler, Executor pollerExecutor, EventQueueStatisticHandler eventQueueStatisticHandler, int queueLimit,
+                      TableCredits credits, EventQueueConfig config) {
+        init(eventQueueStatisticHandler, queueLimit, credits, config);
+        startPoller(Collections.singleton(handler), false, executor(pollerExecutor, config), null, config);
     }
 
     public EventQueue(Set<EventHandler> handlers, Executor pollerExecutor, EventQueueStatisticHandler eventQueueStatisticHandler, int queueLimit,
-                      CountLatch countLatch, Executor handlerExecutor) {
-        if(queueLimit > 0) {
-            this.limitObserver = new LimitObserverImpl(queueLimit, countLatch);
-        }else{
-            this.limitObserver = new NoLimitObserverImpl();
-        }
-        this.statisticHandler = eventQueueStatisticHandler;
-        Runnable eventHandler = () -> {
-            try {
-                while (this.isHandling) {
-                    Change<Map<String, String>> event = this.eventQueue.take();
-                    this.statisticHandler.eventPolledFromQueue(Instant.now(Clock.systemUTC()), event);
-                    handle(handlers, event, handlerExecutor);
-                    this.statisticHandler.eventHandled(Instant.now(Clock.systemUTC()), event);
-                    this.limitObserver.delete();
-                }
-            } catch (Exception e) {
-            }
-        };
+                      TableCredits credits, Executor handlerExecutor) {
+        this(handlers, pollerExecutor, eventQueueStatisticHandler, queueLimit, credits, handlerExecutor, new EventQueueConfig());
+    }
 
-        if (pollerExecutor == null) {
-            this.poller = CompletableFuture.runAsync(eventHandler);
+    public EventQueue(Set<EventHandler> handlers, Executor pollerExecutor, EventQueueStatisticHandler eventQueueStatisticHandler, int queueLimit,
+                      TableCredits credits, Executor handlerExecutor, EventQueueConfig config) {
+        this(handlers, pollerExecutor, eventQueueStatisticHandler, queueLimit, credits, handlerExecutor, config, false);
+    }
+
+    /**
+     * Instantiates a new Event queue with several handlers. In work stealing mode changes are not ordered, idle poller
+     * takes changes from sibling queues, fan-out mode is not used.
+     */
+    EventQueue(Set<EventHandler> handlers, Executor pollerExecutor, EventQueueStatisticHandler eventQueueStatisticHandler, int queueLimit,
+               TableCredits credits, Executor handlerExecutor, EventQueueConfig config, boolean workStealing) {
+        init(eventQueueStatisticHandler, queueLimit, credits, config);
+        if (workStealing) {
+            startStealingPoller(handlers, executor(pollerExecutor, config), executor(handlerExecutor, config), config);
+        } else if (config.isFanOut()) {
+            startWorkers(new ArrayList<>(handlers), executor(pollerExecutor, config), executor(handlerExecutor, config), config);
         } else {
-            this.poller = CompletableFuture.runAsync(eventHandler, pollerExecutor);
+            startPoller(handlers, true, executor(pollerExecutor, config), executor(handlerExecutor, config), config);
         }
     }
 
     public void add(Change<Map<String, String>> event) {
+        add(event, null);
+    }
+
+    /**
+     * Adds change that is handled only by provided handlers of queue. Waits while queue is full or over its byte limit,
+     * but not longer than offer timeout, see {@link EventQueueConfig#setOfferTimeout(long, TimeUnit)}.
+     *
+     * @param event    the change
+     * @param handlers the handlers or null if change is handled by all handlers of queue
+     * @throws RuntimeException if queue is not freed during offer timeout
+     */
+    public void add(Change<Map<String, String>> event, Collection<EventHandler> handlers) {
         if (!this.isReceiving) {
             throw new RuntimeException("Event queue stop work");
         }
         Instant addTimestamp = Instant.now(Clock.systemUTC());
         this.statisticHandler.eventAddedToQueue(addTimestamp, event);
-        this.limitObserver.add();
-        this.eventQueue.add(event);
+        long deadline = System.nanoTime() + this.offerTimeoutNanos;
+        IdleStrategy producerIdleStrategy = null;
+        if (this.limitObserver.isOverByteLimit()) {
+            producerIdleStrategy = this.waitStrategy.get();
+            awaitFree(() -> !this.limitObserver.isOverByteLimit() || !this.isReceiving, producerIdleStrategy, deadline);
+        }
+        this.limitObserver.add(event.getSize());
+        event.retain();
+        if (!this.ringBuffer.offer(event, handlers)) {
+            try {
+                if (producerIdleStrategy == null) {
+                    producerIdleStrategy = this.waitStrategy.get();
+                }
+                do {
+                    awaitFree(() -> !this.ringBuffer.isFull(), producerIdleStrategy, deadline);
+                } while (!this.ringBuffer.offer(event, handlers));
+            } catch (RuntimeException e) {
+                this.limitObserver.delete(1, event.getSize());
+                event.release();
+                throw e;
+            }
+        }
+        signalPublished();
+    }
+
+    /**
+     * Waits by idle strategy until condition is true, waiting producer is woken when queue frees slots.
+     *
+     * @throws RuntimeException if condition is not true until deadline or thread is interrupted
+     */
+    private void awaitFree(BooleanSupplier condition, IdleStrategy idleStrategy, long deadline) {
+        try {
+            while (!condition.getAsBoolean()) {
+                if (System.nanoTime() - deadline >= 0) {
+                    throw new RuntimeException("Event queue is not freed during offer timeout");
+                }
+                this.freed.idle(idleStrategy, condition);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Wakes poller or workers of queue. In work stealing mode, if poller of queue is busy, wakes one idle sibling
+     * poller, so it steals change.
+     */
+    private void signalPublished() {
+        if (this.published.signal()) {
+            return;
+        }
+        List<EventQueue> siblings = this.siblings;
+        for (int i = 0; i < siblings.size(); i++) {
+            EventQueue sibling = siblings.get(i);
+            if (sibling != this && sibling.published.signal()) {
+                return;
+            }
+        }
+    }
+
+    private static long size(List<Change<Map<String, String>>> events) {
+        long size = 0;
+        for (int i = 0; i < events.size(); i++) {
+            size += events.get(i).getSize();
+        }
+        return size;
     }
 
     @Override
     public void close() throws IOException {
         this.isReceiving = false;
-        while (!eventQueue.isEmpty()) {
+        while (!this.ringBuffer.isEmpty()) {
             try {
                 Thread.sleep(1000L);
             } catch (InterruptedException e) {
@@ -126,18 +200,401 @@ public class EventQueue implements Closeable {
             }
         }
         this.isHandling = false;
+        this.published.signal();
+    }
+
+    /**
+     * Check has queue credits for changes, so they can be added without waiting for free space.
+     *
+     * @param count the count of changes
+     * @param bytes the size of changes in bytes
+     * @return the boolean
+     */
+    boolean hasCredits(int count, long bytes) {
+        return this.limitObserver.isAvailable(count, bytes);
+    }
+
+    /**
+     * Gets count of changes added to queue since it is created.
+     *
+     * @return the count
+     */
+    long getAddedCount() {
+        return this.ringBuffer.tailIndex();
+    }
+
+    /**
+     * Gets count of changes handled by queue since it is created, changes are counted in order they are added.
+     *
+     * @return the count
+     */
+    long getHandledCount() {
+        return this.ringBuffer.headIndex();
+    }
+
+    private void init(EventQueueStatisticHandler eventQueueStatisticHandler, int queueLimit, TableCredits credits, EventQueueConfig config) {
+        if(queueLimit > 0) {
+            this.ringBuffer = new EventRingBuffer(queueLimit);
+        }else{
+            this.ringBuffer = new EventRingBuffer(config.getCapacity());
+        }
+        if (credits != null) {
+            this.limitObserver = new LimitObserverImpl(queueLimit, config.getQueueByteLimit(), credits);
+        } else {
+            this.limitObserver = new NoLimitObserverImpl();
+        }
+        this.waitStrategy = config.getWaitStrategy();
+        this.offerTimeoutNanos = config.getOfferTimeoutNanos();
+        this.statisticHandler = eventQueueStatisticHandler;
+    }
+
+    static Executor executor(Executor executor, EventQueueConfig config) {
+        return executor != null ? executor : config.getExecutor();
+    }
+
+    /**
+     * Runs long-lived loop of queue or holder in thread from executor or, if executor is null, in own daemon thread, so
+     * loops never occupy threads of common pool.
+     *
+     * @return the future, that is completed when loop ends
+     */
+    static CompletableFuture<Void> runLoop(Runnable loop, Executor executor, String name) {
+        if (executor != null) {
+            return CompletableFuture.runAsync(loop, executor);
+        }
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        Thread thread = new Thread(() -> {
+            try {
+                loop.run();
+                future.complete(null);
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        }, name);
+        thread.setDaemon(true);
+        thread.start();
+        return future;
+    }
+
+    private void startPoller(Collection<EventHandler> handlers, boolean fanOut, Executor pollerExecutor, Executor handlerExecutor,
+                             EventQueueConfig config) {
+        IdleStrategy pollerIdleStrategy = config.getIdleStrategy().get();
+        int maxBatchSize = Math.min(config.getMaxBatchSize(), this.ringBuffer.capacity());
+        long maxLingerNanos = config.getMaxLingerNanos();
+        Runnable eventHandler = () -> {
+            try {
+                while (this.isHandling) {
+                    int count = drain(maxBatchSize, maxLingerNanos);
+                    if (count == 0) {
+                        this.published.idle(pollerIdleStrategy, () -> !this.ringBuffer.isEmpty() || !this.isHandling);
+                        continue;
+                    }
+                    pollerIdleStrategy.reset();
+                    this.statisticHandler.batchPolledFromQueue(Instant.now(Clock.systemUTC()), this.batch);
+                    if (fanOut) {
+                        handle(handlers, handlerExecutor);
+                    } else {
+                        for (EventHandler handler : handlers) {
+                            handleBatch(handler);
+                        }
+                    }
+                    this.statisticHandler.batchHandled(Instant.now(Clock.systemUTC()), this.batch);
+                    long bytes = size(this.batch);
+                    this.ringBuffer.remove(count);
+                    this.limitObserver.delete(count, bytes);
+                    this.freed.signal();
+                    for (Change<Map<String, String>> event : this.batch) {
+                        event.release();
+                    }
+                    this.batch.clear();
+                    this.batchHandlers.clear();
+                    this.filtered = false;
+                }
+            } catch (Exception e) {
+            }
+        };
+
+        this.poller = runLoop(eventHandler, pollerExecutor, "event-queue-poller");
+    }
+
+    /**
+     * Collects batch of changes from head of ring buffer without freeing their slots. If max linger is set, waits for
+     * more changes while batch is not full and max linger is not passed since the first change.
+     */
+    private int drain(int maxBatchSize, long maxLingerNanos) {
+        int count = 0;
+        long deadline = 0;
+        while (true) {
+            Change<Map<String, String>> event;
+            while (count < maxBatchSize && (event = this.ringBuffer.peek(count)) != null) {
+                Collection<EventHandler> eventHandlers = this.ringBuffer.peekHandlers(count);
+                this.batch.add(event);
+                this.batchHandlers.add(eventHandlers);
+                this.filtered |= eventHandlers != null;
+                count++;
+            }
+            if (count == 0 || count == maxBatchSize || maxLingerNanos <= 0) {
+                return count;
+            }
+            long now = System.nanoTime();
+            if (deadline == 0) {
+                deadline = now + maxLingerNanos;
+            } else if (now - deadline >= 0) {
+                return count;
+            }
+            long available = this.ringBuffer.headIndex() + count;
+            this.published.parkUntil(deadline, () -> this.ringBuffer.tailIndex() > available);
+        }
     }
 
-    private void handle(Set<EventHandler> handlers, Change<Map<String, String>> event, Executor handlerExecutor) {
+    private void handle(Collection<EventHandler> handlers, Executor handlerExecutor) {
         CompletableFuture.allOf(handlers.stream()
                 .map(handler -> {
-                    Runnable task = () -> handleEvent(event, handler);
+                    Runnable task = () -> handleBatch(handler);
                     return handlerExecutor == null ? CompletableFuture.runAsync(task) : CompletableFuture.runAsync(task, handlerExecutor);
                 })
                 .toArray(CompletableFuture[]::new))
                 .join();
     }
 
+    /**
+     * Sets queues that are polled by this queue in work stealing mode, when it is empty.
+     *
+     * @param siblings the sibling queues, can include this queue
+     */
+    void setSiblings(List<EventQueue> siblings) {
+        this.siblings = siblings;
+    }
+
+    private void startStealingPoller(Collection<EventHandler> handlers, Executor pollerExecutor, Executor handlerExecutor,
+                                     EventQueueConfig config) {
+        IdleStrategy pollerIdleStrategy = config.getIdleStrategy().get();
+        int maxBatchSize = Math.min(config.getMaxBatchSize(), this.ringBuffer.capacity());
+        EventRingBuffer.Claim claim = new EventRingBuffer.Claim();
+        Runnable eventHandler = () -> {
+            try {
+                while (this.isHandling) {
+                    EventQueue source = claim(maxBatchSize, claim);
+                    if (source == null) {
+                        this.published.idle(pollerIdleStrategy, () -> this.ringBuffer.hasUnclaimed() || !this.isHandling);
+                        continue;
+                    }
+                    pollerIdleStrategy.reset();
+                    for (long index = claim.start; index < claim.start + claim.count; index++) {
+                        Collection<EventHandler> eventHandlers = source.ringBuffer.getHandlers(index);
+                        this.batch.add(source.ringBuffer.get(index));
+                        this.batchHandlers.add(eventHandlers);
+                        this.filtered |= eventHandlers != null;
+                    }
+                    source.statisticHandler.batchPolledFromQueue(Instant.now(Clock.systemUTC()), this.batch);
+                    handle(handlers, handlerExecutor);
+                    source.statisticHandler.batchHandled(Instant.now(Clock.systemUTC()), this.batch);
+                    long bytes = size(this.batch);
+                    source.ringBuffer.complete(claim.start, claim.count);
+                    source.limitObserver.delete(claim.count, bytes);
+                    source.freed.signal();
+                    for (Change<Map<String, String>> event : this.batch) {
+                        event.release();
+                    }
+                    this.batch.clear();
+                    this.batchHandlers.clear();
+                    this.filtered = false;
+                }
+            } catch (Exception e) {
+            }
+        };
+
+        this.poller = runLoop(eventHandler, pollerExecutor, "event-queue-poller");
+    }
+
+    /**
+     * Claims batch from this queue or, if it is empty, from the first sibling queue that has changes.
+     *
+     * @return the queue of claimed batch or null if all queues are empty
+     */
+    private EventQueue claim(int maxBatchSize, EventRingBuffer.Claim claim) {
+        if (this.ringBuffer.claim(maxBatchSize, claim)) {
+            return this;
+        }
+        List<EventQueue> siblings = this.siblings;
+        int start = Math.max(siblings.indexOf(this), 0);
+        for (int i = 1; i <= siblings.size(); i++) {
+            EventQueue sibling = siblings.get((start + i) % siblings.size());
+            if (sibling != this && sibling.ringBuffer.claim(Math.min(maxBatchSize, sibling.ringBuffer.capacity()), claim)) {
+                return sibling;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Starts fan-out mode: every handler has long-lived worker with own cursor into ring buffer, workers do not wait
+     * each other. Poller is completion barrier, it frees slots of changes that are handled by all workers.
+     */
+    private void startWorkers(List<EventHandler> handlers, Executor pollerExecutor, Executor handlerExecutor, EventQueueConfig config) {
+        AtomicLongArray cursors = new AtomicLongArray(handlers.size());
+        int maxBatchSize = Math.min(config.getMaxBatchSize(), this.ringBuffer.capacity());
+        long maxLingerNanos = config.getMaxLingerNanos();
+        for (int i = 0; i < handlers.size(); i++) {
+            Runnable worker = createWorker(handlers.get(i), i, cursors, maxBatchSize, maxLingerNanos, config.getIdleStrategy().get());
+            runLoop(worker, handlerExecutor, "event-queue-worker-" + handlers.get(i).getHandlerName());
+        }
+        IdleStrategy pollerIdleStrategy = config.getIdleStrategy().get();
+        Runnable barrier = () -> {
+            long polled = 0;
+            try {
+                while (this.isHandling) {
+                    long next = polled;
+                    while (this.ringBuffer.get(next) != null) {
+                        this.batch.add(this.ringBuffer.get(next));
+                        next++;
+                    }
+                    if (next != polled) {
+                        this.statisticHandler.batchPolledFromQueue(Instant.now(Clock.systemUTC()), this.batch);
+                        this.batch.clear();
+                        polled = next;
+                    }
+                    long head = this.ringBuffer.headIndex();
+                    long completed = min(cursors, polled);
+                    if (completed == head) {
+                        long available = polled;
+                        this.published.idle(pollerIdleStrategy,
+                                () -> this.ringBuffer.tailIndex() > available || min(cursors, available) > head || !this.isHandling);
+                        continue;
+                    }
+                    pollerIdleStrategy.reset();
+                    for (long index = head; index < completed; index++) {
+                        this.batch.add(this.ringBuffer.get(index));
+                    }
+                    this.statisticHandler.batchHandled(Instant.now(Clock.systemUTC()), this.batch);
+                    int count = (int) (completed - head);
+                    long bytes = size(this.batch);
+                    this.ringBuffer.remove(count);
+                    this.limitObserver.delete(count, bytes);
+                    this.freed.signal();
+                    for (Change<Map<String, String>> event : this.batch) {
+                        event.release();
+                    }
+                    this.batch.clear();
+                }
+            } catch (Exception e) {
+            }
+        };
+
+        this.poller = runLoop(barrier, pollerExecutor, "event-queue-barrier");
+    }
+
+    private static long min(AtomicLongArray cursors, long polled) {
+        long completed = polled;
+        for (int i = 0; i < cursors.length(); i++) {
+            completed = Math.min(completed, cursors.get(i));
+        }
+        return completed;
+    }
+
+    private Runnable createWorker(EventHandler handler, int number, AtomicLongArray cursors, int maxBatchSize, long maxLingerNanos,
+                                  IdleStrategy idleStrategy) {
+        List<Change<Map<String, String>>> events = new ArrayList<>();
+        return () -> {
+            long cursor = 0;
+            try {
+                while (this.isHandling) {
+                    long next = drain(handler, cursor, events, maxBatchSize, maxLingerNanos);
+                    if (next == cursor) {
+                        long available = cursor;
+                        this.published.idle(idleStrategy, () -> this.ringBuffer.tailIndex() > available || !this.isHandling);
+                        continue;
+                    }
+                    idleStrategy.reset();
+                    if (handler instanceof BatchEventHandler) {
+                        handleBatchEvents(handler, events);
+                    } else {
+                        for (Change<Map<String, String>> event : events) {
+                            handleEvent(event, handler);
+                        }
+                    }
+                    events.clear();
+                    cursor = next;
+                    // volatile write, barrier checks cursors after it is registered as waiter
+                    cursors.set(number, cursor);
+                    this.published.signal();
+                }
+            } catch (Exception e) {
+            }
+        };
+    }
+
+    /**
+     * Collects changes accepted by handler from cursor of worker, like {@link #drain(int, long)}.
+     *
+     * @return the cursor after collected changes
+     */
+    private long drain(EventHandler handler, long cursor, List<Change<Map<String, String>>> events, int maxBatchSize, long maxLingerNanos) {
+        long next = cursor;
+        long deadline = 0;
+        while (true) {
+            Change<Map<String, String>> event;
+            while (next - cursor < maxBatchSize && (event = this.ringBuffer.get(next)) != null) {
+                Collection<EventHandler> eventHandlers = this.ringBuffer.getHandlers(next);
+                if (eventHandlers == null || eventHandlers.contains(handler)) {
+                    events.add(event);
+                }
+                next++;
+            }
+            if (next == cursor || next - cursor == maxBatchSize || maxLingerNanos <= 0) {
+                return next;
+            }
+            long now = System.nanoTime();
+            if (deadline == 0) {
+                deadline = now + maxLingerNanos;
+            } else if (now - deadline >= 0) {
+                return next;
+            }
+            long available = next;
+            this.published.parkUntil(deadline, () -> this.ringBuffer.tailIndex() > available);
+        }
+    }
+
+    private void handleBatch(EventHandler handler) {
+        if (handler instanceof BatchEventHandler) {
+            handleBatchEvents(handler, this.filtered ? acceptedEvents(handler) : this.batch);
+            return;
+        }
+        for (int i = 0; i < this.batch.size(); i++) {
+            if (isAccepted(i, handler)) {
+                handleEvent(this.batch.get(i), handler);
+            }
+        }
+    }
+
+    private void handleBatchEvents(EventHandler handler, List<Change<Map<String, String>>> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        long start = Clock.systemUTC().millis();
+        try {
+            ((BatchEventHandler) handler).handle(events);
+        } catch (Exception e) {
+            logger.error("Error when handling batch of " + events.size() + " events exception: ", e);
+        }
+        this.statisticHandler.batchHandled(handler.getHandlerName(), Clock.systemUTC().millis() - start, events);
+    }
+
+    private List<Change<Map<String, String>>> acceptedEvents(EventHandler handler) {
+        List<Change<Map<String, String>>> events = new ArrayList<>(this.batch.size());
+        for (int i = 0; i < this.batch.size(); i++) {
+            if (isAccepted(i, handler)) {
+                events.add(this.batch.get(i));
+            }
+        }
+        return events;
+    }
+
+    private boolean isAccepted(int index, EventHandler handler) {
+        Collection<EventHandler> eventHandlers = this.batchHandlers.get(index);
+        return eventHandlers == null || eventHandlers.contains(handler);
+    }
+
     private void handleEvent(Change<Map<String, String>> event, EventHandler handler) {
         long start = Clock.systemUTC().millis();
         try {
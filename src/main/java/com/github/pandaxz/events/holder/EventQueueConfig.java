@@ -0,0 +1,235 @@
+/*
+ *   Copyright 2019 the original author or authors.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *        https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package com.github.pandaxz.events.holder;
+
+import com.github.pandaxz.events.idle.BackoffIdleStrategy;
+import com.github.pandaxz.events.idle.IdleStrategy;
+
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Configuration of event queues. Every queue has pre-allocated ring buffer, its capacity is the queue limit, or the
+ * default capacity for queues without limit. Producer waits, when ring buffer is full, and poller waits, when ring
+ * buffer is empty, both by idle strategy, and they are woken by each other. Poller takes batch of available changes,
+ * statistic and limit are updated once per batch, {@link BatchEventHandler} receives the whole batch.
+ *
+ * @author Uladzislau Belykh
+ */
+public class EventQueueConfig {
+
+    private static final int DEFAULT_CAPACITY = 1 << 14;
+    private static final int DEFAULT_MAX_BATCH_SIZE = 256;
+    private static final long DEFAULT_MAX_PARK_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final long DEFAULT_OFFER_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+    private int capacity = DEFAULT_CAPACITY;
+    private Supplier<IdleStrategy> idleStrategy = () -> new BackoffIdleStrategy(100, 100, TimeUnit.MICROSECONDS.toNanos(1),
+            DEFAULT_MAX_PARK_NANOS);
+    private Supplier<IdleStrategy> waitStrategy = BackoffIdleStrategy::new;
+    private long offerTimeoutNanos = DEFAULT_OFFER_TIMEOUT_NANOS;
+    private int maxBatchSize = DEFAULT_MAX_BATCH_SIZE;
+    private long maxLingerNanos;
+    private boolean fanOut;
+    private long queueByteLimit;
+    private boolean virtualThreads;
+    private Executor executor;
+
+    /**
+     * Gets capacity of queues without limit.
+     *
+     * @return the capacity
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Sets capacity of queues without limit.
+     *
+     * @param capacity the capacity
+     */
+    public void setCapacity(int capacity) {
+        if (capacity <= 0 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Queue capacity should be positive and not greater than 2^30");
+        }
+        this.capacity = capacity;
+    }
+
+    /**
+     * Gets max count of changes polled from queue at once.
+     *
+     * @return the max batch size
+     */
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    /**
+     * Gets max time of waiting for more changes, while batch is not full.
+     *
+     * @return the max linger in nanoseconds
+     */
+    public long getMaxLingerNanos() {
+        return maxLingerNanos;
+    }
+
+    /**
+     * Sets limits of batch polled from queue. Batch is limited by queue capacity too.
+     *
+     * @param maxBatchSize the max count of changes in batch
+     * @param maxLinger    the max time of waiting for more changes since the first change of batch, zero means that
+     *                     batch contains only changes available at once
+     * @param unit         the unit of max linger
+     */
+    public void setBatch(int maxBatchSize, long maxLinger, TimeUnit unit) {
+        if (maxBatchSize <= 0 || maxLinger < 0) {
+            throw new IllegalArgumentException("Max batch size should be positive and max linger should be not negative");
+        }
+        this.maxBatchSize = maxBatchSize;
+        this.maxLingerNanos = unit.toNanos(maxLinger);
+    }
+
+    /**
+     * Check is fan-out mode enabled.
+     *
+     * @return the boolean
+     */
+    public boolean isFanOut() {
+        return fanOut;
+    }
+
+    /**
+     * Enable fan-out mode of queues with several handlers. Every handler gets long-lived worker with own cursor into
+     * queue, handlers do not wait each other and change is freed when all handlers handled it. Handlers are taken when
+     * queue is created, handlers that are registered later are not used by queue. Workers run in threads of handler
+     * executor or, if it is not set, in own daemon threads. Without fan-out mode every batch is handled by tasks of
+     * handler executor, one per handler, and the next batch waits for all of them.
+     *
+     * @param fanOut the fan out
+     */
+    public void setFanOut(boolean fanOut) {
+        this.fanOut = fanOut;
+    }
+
+    public long getQueueByteLimit() {
+        return queueByteLimit;
+    }
+
+    /**
+     * Sets limit of estimated size of changes in every queue, see
+     * {@link com.github.pandaxz.events.dto.Change#getSize()}. Adding to queue over byte limit waits until queue handles
+     * changes, queue over limit exhausts credits of its table. It is checked with count limit of queue.
+     *
+     * @param queueByteLimit the limit in bytes or 0 if size of queue is not limited
+     */
+    public void setQueueByteLimit(long queueByteLimit) {
+        if (queueByteLimit < 0) {
+            throw new IllegalArgumentException("Queue byte limit should not be negative");
+        }
+        this.queueByteLimit = queueByteLimit;
+    }
+
+    /**
+     * Check is virtual threads mode enabled.
+     *
+     * @return the boolean
+     */
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * Enable virtual threads mode. Pollers and handlers of queues without own executors run on virtual threads, idle
+     * pollers park and do not occupy platform threads. If jvm does not support virtual threads, cached daemon platform
+     * threads are used.
+     *
+     * @param virtualThreads the virtual threads
+     */
+    public void setVirtualThreads(boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+    }
+
+    /**
+     * Gets executor of pollers and handlers of queues without own executors.
+     *
+     * @return the executor or null if loops of queues run in own daemon threads
+     */
+    Executor getExecutor() {
+        if (!this.virtualThreads) {
+            return null;
+        }
+        if (this.executor == null) {
+            this.executor = VirtualThreads.newExecutor();
+        }
+        return this.executor;
+    }
+
+    /**
+     * Gets factory of idle strategies.
+     *
+     * @return the idle strategy factory
+     */
+    public Supplier<IdleStrategy> getIdleStrategy() {
+        return idleStrategy;
+    }
+
+    /**
+     * Sets factory of idle strategies, every waiting thread gets own instance. Use
+     * {@link com.github.pandaxz.events.idle.BusySpinIdleStrategy} for busy spin,
+     * {@link com.github.pandaxz.events.idle.YieldingIdleStrategy} for yield and {@link BackoffIdleStrategy}
+     * for park. By default idle threads park up to 1 second, they are unparked when queue is changed.
+     *
+     * @param idleStrategy the idle strategy factory
+     */
+    public void setIdleStrategy(Supplier<IdleStrategy> idleStrategy) {
+        Objects.requireNonNull(idleStrategy);
+        this.idleStrategy = idleStrategy;
+        this.waitStrategy = idleStrategy;
+    }
+
+    /**
+     * Gets factory of idle strategies for short waits of producers, e.g. for credits or migration of queues, which are
+     * not signaled. It is the idle strategy, if it is set, or backoff with park up to 1 millisecond.
+     *
+     * @return the idle strategy factory
+     */
+    Supplier<IdleStrategy> getWaitStrategy() {
+        return waitStrategy;
+    }
+
+    long getOfferTimeoutNanos() {
+        return offerTimeoutNanos;
+    }
+
+    /**
+     * Sets max time of waiting for free space of full queue. If change is not added during timeout, adding fails, so
+     * wait is bounded even when credits of table are not exhausted yet. {@link EventHolder} sets it to its delay.
+     *
+     * @param offerTimeout the offer timeout
+     * @param unit         the unit of offer timeout
+     */
+    public void setOfferTimeout(long offerTimeout, TimeUnit unit) {
+        if (offerTimeout <= 0) {
+            throw new IllegalArgumentException("Offer timeout should be positive");
+        }
+        this.offerTimeoutNanos = unit.toNanos(offerTimeout);
+    }
+}
@@ -22,6 +22,8 @@ import com.github.pandaxz.events.holder.statistic.EventHolderStatisticHandler;
 
 import java.io.Closeable;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 /**
 * @author Uladzislau Belykh
@@ -31,7 +33,46 @@ public interface EventQueueHolder extends Closeable {
 
     void add(Change<Map<String, String>> event);
 
+    /**
+     * Resolves queues of change and adds them to routes of batch, change is added to them by routes. By default change
+     * is added by {@link #add(Change)} without resolved queues, so only credits of table are checked.
+     *
+     * @param event  the change
+     * @param routes the routes of batch
+     */
+    default void route(Change<Map<String, String>> event, EventRoutes routes) {
+        routes.add(event, this, null, null);
+    }
+
     void registerHandler(EventHandler handler);
 
     void unregisterHandler(EventHandler handler);
+
+    /**
+     * Sets configuration of event queues, it is used by init.
+     *
+     * @param config the event queue config
+     */
+    default void setEventQueueConfig(EventQueueConfig config) {
+    }
+
+    /**
+     * Changes count of queues after init. Consistent hashing resolver moves only part of keys to other queues. Changes
+     * of moved keys wait until changes added to their previous queues are handled, so order of changes of the same key
+     * is kept. Should not be called concurrently with add.
+     *
+     * @param queueCount the queue count
+     * @return the future that is completed when previous queues handled changes of moved keys and removed queues are
+     * closed
+     */
+    CompletableFuture<Void> resize(int queueCount);
+
+    /**
+     * Gets columns that are needed by handlers and resolver of holder.
+     *
+     * @return the columns or null if all columns are needed
+     */
+    default Set<String> getColumns() {
+        return null;
+    }
 }
@@ -0,0 +1,241 @@
+/*
+ *   Copyright 2019 the original author or authors.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *        https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package com.github.pandaxz.events.holder;
+
+import com.github.pandaxz.events.dto.Change;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Pre-allocated bounded ring of changes for one consumer. Producers claim slot by cas of tail, it is not contended
+ * when there is one producer, and publish change by ordered write of slot. Consumer reads slot at head, handles change
+ * and only then frees slot, so capacity bounds handled changes too. Handlers of change are kept in parallel array
+ * and are published by change write.
+ * <p>
+ * In work stealing mode several consumers claim batches by cas of claim index, handle them concurrently and complete
+ * them. Completed slots are cleared, head is moved over cleared slots by any consumer, so slots are freed in order.
+ * <p>
+ * Slots are allocated for capacity rounded up to power of two, but ring holds at most capacity changes, so queue limit
+ * is exact.
+ *
+ * @author Uladzislau Belykh
+ */
+final class EventRingBuffer {
+
+    private final int mask;
+    private final int limit;
+    private final AtomicReferenceArray<Change<Map<String, String>>> events;
+    private final Object[] handlers;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong claimed = new AtomicLong();
+
+    /**
+     * Instantiates a new Event ring buffer.
+     *
+     * @param capacity the capacity, slots are allocated for it rounded up to power of two
+     */
+    EventRingBuffer(int capacity) {
+        if (capacity <= 0 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Ring buffer capacity should be positive and not greater than 2^30");
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.mask = size - 1;
+        this.limit = capacity;
+        this.events = new AtomicReferenceArray<>(size);
+        this.handlers = new Object[size];
+    }
+
+    /**
+     * Adds change if ring is not full.
+     *
+     * @param event    the change
+     * @param handlers the handlers of change, null if all handlers of queue
+     * @return true, if change is added
+     */
+    boolean offer(Change<Map<String, String>> event, Collection<EventHandler> handlers) {
+        long index;
+        do {
+            index = this.tail.get();
+            if (index - this.head.get() >= this.limit) {
+                return false;
+            }
+        } while (!this.tail.compareAndSet(index, index + 1));
+        int slot = (int) index & this.mask;
+        this.handlers[slot] = handlers;
+        this.events.lazySet(slot, event);
+        return true;
+    }
+
+    /**
+     * Gets change at offset from head without freeing its slot. Should be called only by consumer, offset should be
+     * less than capacity.
+     *
+     * @param offset the offset from head
+     * @return the change or null if there is no published change at offset
+     */
+    Change<Map<String, String>> peek(int offset) {
+        return this.events.get((int) (this.head.get() + offset) & this.mask);
+    }
+
+    /**
+     * Gets handlers of change at offset from head. Should be called only by consumer after {@link #peek(int)}
+     * returned change.
+     *
+     * @param offset the offset from head
+     * @return the handlers or null if all handlers of queue
+     */
+    @SuppressWarnings("unchecked")
+    Collection<EventHandler> peekHandlers(int offset) {
+        return (Collection<EventHandler>) this.handlers[(int) (this.head.get() + offset) & this.mask];
+    }
+
+    /**
+     * Frees slots of changes at head. Should be called only by consumer after {@link #peek(int)} returned changes.
+     *
+     * @param count the count of changes
+     */
+    void remove(int count) {
+        long index = this.head.get();
+        for (int i = 0; i < count; i++) {
+            int slot = (int) (index + i) & this.mask;
+            this.handlers[slot] = null;
+            this.events.lazySet(slot, null);
+        }
+        // volatile write, producer checks head after it is registered as waiter
+        this.head.set(index + count);
+    }
+
+    /**
+     * Gets change by absolute index. It can be called by several consumers, that keep own cursors not less than head.
+     *
+     * @param index the index
+     * @return the change or null if change at index is not published yet
+     */
+    Change<Map<String, String>> get(long index) {
+        if (index >= this.tail.get()) {
+            return null;
+        }
+        return this.events.get((int) index & this.mask);
+    }
+
+    /**
+     * Gets handlers of change by absolute index. Should be called after {@link #get(long)} returned change.
+     *
+     * @param index the index
+     * @return the handlers or null if all handlers of queue
+     */
+    @SuppressWarnings("unchecked")
+    Collection<EventHandler> getHandlers(long index) {
+        return (Collection<EventHandler>) this.handlers[(int) index & this.mask];
+    }
+
+    /**
+     * Claims batch of published changes in work stealing mode.
+     *
+     * @param maxCount the max count of changes, should be not greater than capacity
+     * @param claim    the claim that gets start and count of batch
+     * @return true, if batch is claimed
+     */
+    boolean claim(int maxCount, Claim claim) {
+        while (true) {
+            long start = this.claimed.get();
+            long tail = this.tail.get();
+            int count = 0;
+            while (count < maxCount && start + count < tail && this.events.get((int) (start + count) & this.mask) != null) {
+                count++;
+            }
+            if (count == 0) {
+                return false;
+            }
+            if (this.claimed.compareAndSet(start, start + count)) {
+                claim.start = start;
+                claim.count = count;
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Completes claimed batch in work stealing mode: clears its slots and moves head over cleared slots.
+     *
+     * @param start the start index of batch
+     * @param count the count of changes
+     */
+    void complete(long start, int count) {
+        for (int i = 0; i < count; i++) {
+            int slot = (int) (start + i) & this.mask;
+            this.handlers[slot] = null;
+            // volatile write, the last of concurrent completing consumers sees all cleared slots
+            this.events.set(slot, null);
+        }
+        while (true) {
+            long head = this.head.get();
+            long claimed = this.claimed.get();
+            long next = head;
+            while (next < claimed && this.events.get((int) next & this.mask) == null) {
+                next++;
+            }
+            if (next == head || this.head.compareAndSet(head, next)) {
+                return;
+            }
+        }
+    }
+
+    long headIndex() {
+        return this.head.get();
+    }
+
+    long tailIndex() {
+        return this.tail.get();
+    }
+
+    int size() {
+        return (int) (this.tail.get() - this.head.get());
+    }
+
+    boolean isEmpty() {
+        return this.head.get() == this.tail.get();
+    }
+
+    boolean hasUnclaimed() {
+        return this.claimed.get() < this.tail.get();
+    }
+
+    boolean isFull() {
+        return this.tail.get() - this.head.get() >= this.limit;
+    }
+
+    int capacity() {
+        return this.limit;
+    }
+
+    /**
+     * Batch claimed by consumer in work stealing mode.
+     */
+    static final class Claim {
+        long start;
+        int count;
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ *   Copyright 2019 the original author or authors.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *        https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package com.github.pandaxz.events.holder;
+
+import com.github.pandaxz.events.dto.Change;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Queues of changes of batch. Holders resolve queues of all changes before any change is added, so producer waits
+ * only for credits of queues, which changes are added to, and changes are added to the same queues. Changes of holders,
+ * which do not resolve queues, are added by holder.
+ *
+ * @author Uladzislau Belykh
+ */
+public final class EventRoutes {
+
+    private final List<Change<Map<String, String>>> events = new ArrayList<>();
+    private final List<EventQueueHolder> holders = new ArrayList<>();
+    private final List<EventQueue> queues = new ArrayList<>();
+    private final List<Collection<EventHandler>> handlers = new ArrayList<>();
+    private final Map<EventQueue, Demand> demands = new IdentityHashMap<>();
+
+    EventRoutes() {
+    }
+
+    /**
+     * Adds route of change.
+     *
+     * @param event    the change
+     * @param holder   the holder of table
+     * @param queue    the queue or null if change is added by holder
+     * @param handlers the handlers of queue, which accept change, or null if all handlers accept it
+     */
+    void add(Change<Map<String, String>> event, EventQueueHolder holder, EventQueue queue, Collection<EventHandler> handlers) {
+        this.events.add(event);
+        this.holders.add(holder);
+        this.queues.add(queue);
+        this.handlers.add(handlers);
+        if (queue != null) {
+            Demand demand = this.demands.computeIfAbsent(queue, key -> new Demand(event.getTable()));
+            demand.count++;
+            demand.bytes += event.getSize();
+        }
+    }
+
+    /**
+     * Gets resolved queues with count and size of their changes.
+     *
+     * @return the demands by queue
+     */
+    Map<EventQueue, Demand> getDemands() {
+        return this.demands;
+    }
+
+    /**
+     * Adds changes to resolved queues in order of batch.
+     */
+    void apply() {
+        for (int i = 0; i < this.events.size(); i++) {
+            EventQueue queue = this.queues.get(i);
+            if (queue == null) {
+                this.holders.get(i).add(this.events.get(i));
+            } else {
+                queue.add(this.events.get(i), this.handlers.get(i));
+            }
+        }
+    }
+
+    /**
+     * Count and size of changes of batch resolved to queue.
+     */
+    static final class Demand {
+        final String table;
+        int count;
+        long bytes;
+
+        private Demand(String table) {
+            this.table = table;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ *   Copyright 2019 the original author or authors.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *        https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package com.github.pandaxz.events.holder;
+
+import com.github.pandaxz.events.holder.resolver.EventQueueResolver;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Union of columns declared by handlers, their filters and resolver of table.
+ *
+ * @author Uladzislau Belykh
+ */
+final class HandlerColumns {
+
+    private HandlerColumns() {
+    }
+
+    static Set<String> union(String table, EventQueueResolver resolver, Collection<EventHandler> handlers) {
+        Set<String> resolverColumns = resolver.getColumns(table);
+        if (resolverColumns == null) {
+            return null;
+        }
+        Set<String> columns = new HashSet<>(resolverColumns);
+        for (EventHandler handler : handlers) {
+            Set<String> handlerColumns = handler.getColumns(table);
+            Set<String> filterColumns = handler.getFilter(table).getColumns();
+            if (handlerColumns == null || filterColumns == null) {
+                return null;
+            }
+            columns.addAll(handlerColumns);
+            columns.addAll(filterColumns);
+        }
+        return Collections.unmodifiableSet(columns);
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ *   Copyright 2019 the original author or authors.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *        https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package com.github.pandaxz.events.holder;
+
+import com.github.pandaxz.events.dto.Change;
+import com.github.pandaxz.events.holder.resolver.EventQueueResolver;
+import com.github.pandaxz.events.idle.IdleStrategy;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Routing of changes to queues of holder. On resize it is replaced by routing to new queues, that keeps fences of
+ * previous queues: change, which key is moved to another queue, waits until changes added to its previous queue before
+ * resize are handled, so changes of the same key are handled in order. Keys that are not moved are not delayed.
+ *
+ * @param <T> the type of queue, queue can consist of several event queues
+ * @author Uladzislau Belykh
+ */
+final class QueueRouting<T> {
+
+    private final List<T> queues;
+    private final Function<T, List<EventQueue>> eventQueues;
+    private final List<T> previousQueues;
+    private final long[][] fences;
+    private volatile boolean migrating;
+
+    /**
+     * Instantiates routing to initial queues.
+     *
+     * @param queues      the queues
+     * @param eventQueues the function that gets event queues of queue
+     */
+    QueueRouting(List<T> queues, Function<T, List<EventQueue>> eventQueues) {
+        this.queues = queues;
+        this.eventQueues = eventQueues;
+        this.previousQueues = null;
+        this.fences = null;
+    }
+
+    private QueueRouting(List<T> queues, QueueRouting<T> previous) {
+        this.queues = queues;
+        this.eventQueues = previous.eventQueues;
+        this.previousQueues = previous.queues;
+        this.fences = new long[this.previousQueues.size()][];
+        for (int i = 0; i < this.fences.length; i++) {
+            List<EventQueue> eventQueues = this.eventQueues.apply(this.previousQueues.get(i));
+            this.fences[i] = new long[eventQueues.size()];
+            for (int j = 0; j < eventQueues.size(); j++) {
+                this.fences[i][j] = eventQueues.get(j).getAddedCount();
+            }
+        }
+        this.migrating = true;
+    }
+
+    /**
+     * Creates routing to resized queues. Changes should not be added while it is created, so fences include all
+     * changes added to previous queues.
+     *
+     * @param queues  the resized queues
+     * @param ordered true, if order of changes of moved keys should be kept
+     * @return the routing
+     */
+    QueueRouting<T> resize(List<T> queues, boolean ordered) {
+        return ordered ? new QueueRouting<>(queues, this) : new QueueRouting<>(queues, this.eventQueues);
+    }
+
+    int getQueueCount() {
+        return this.queues.size();
+    }
+
+    List<T> getQueues() {
+        return this.queues;
+    }
+
+    /**
+     * Resolves queue of change. While migration is not completed and key of change is moved, waits by idle strategy
+     * until previous queue of key handles changes added before resize.
+     *
+     * @param resolver     the resolver
+     * @param event        the change
+     * @param idleStrategy the idle strategy
+     * @return the queue
+     */
+    T get(EventQueueResolver resolver, Change<Map<String, String>> event, Supplier<IdleStrategy> idleStrategy) {
+        int index = resolver.resolve(this.queues.size(), event);
+        if (this.migrating) {
+            int previousIndex = resolver.resolve(this.previousQueues.size(), event);
+            if (previousIndex != index && !isMigrated(previousIndex)) {
+                try {
+                    await(previousIndex, idleStrategy.get());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException(e);
+                }
+            }
+        }
+        return this.queues.get(index);
+    }
+
+    /**
+     * Waits until all previous queues handle changes added before resize, after that changes are resolved only by new
+     * queue count.
+     *
+     * @param idleStrategy the idle strategy
+     * @throws InterruptedException the interrupted exception
+     */
+    void awaitMigration(IdleStrategy idleStrategy) throws InterruptedException {
+        if (this.migrating) {
+            for (int i = 0; i < this.fences.length; i++) {
+                await(i, idleStrategy);
+            }
+            this.migrating = false;
+        }
+    }
+
+    private void await(int previousIndex, IdleStrategy idleStrategy) throws InterruptedException {
+        idleStrategy.reset();
+        while (!isMigrated(previousIndex)) {
+            idleStrategy.idle();
+        }
+    }
+
+    private boolean isMigrated(int previousIndex) {
+        List<EventQueue> eventQueues = this.eventQueues.apply(this.previousQueues.get(previousIndex));
+        long[] fences = this.fences[previousIndex];
+        for (int i = 0; i < fences.length; i++) {
+            if (eventQueues.get(i).getHandledCount() < fences[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
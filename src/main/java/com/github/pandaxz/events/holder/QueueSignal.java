@@ -0,0 +1,101 @@
+/*
+ *   Copyright 2019 the original author or authors.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *        https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package com.github.pandaxz.events.holder;
+
+import com.github.pandaxz.events.idle.IdleStrategy;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Wakes threads of event queue, which wait for change of its state: pollers and workers wait for published changes,
+ * producers wait for freed slots. Waiting thread idles by its idle strategy, which can park for a long time, and it is
+ * unparked by signal, so idle queue does not poll ring buffer often. Signal costs one volatile read when nobody waits.
+ *
+ * @author Uladzislau Belykh
+ */
+final class QueueSignal {
+
+    private final Set<Thread> waiters = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger waiting = new AtomicInteger();
+
+    /**
+     * Idles once by idle strategy, unless condition is already true. Condition is checked after thread is registered,
+     * so signal that is sent after the check unparks thread.
+     *
+     * @param idleStrategy the idle strategy
+     * @param condition    the condition, that thread waits for
+     * @throws InterruptedException the interrupted exception
+     */
+    void idle(IdleStrategy idleStrategy, BooleanSupplier condition) throws InterruptedException {
+        register();
+        try {
+            if (!condition.getAsBoolean()) {
+                idleStrategy.idle();
+            }
+        } finally {
+            unregister();
+        }
+    }
+
+    /**
+     * Parks until deadline, unless condition is already true. Thread is unparked by signal before deadline.
+     *
+     * @param deadline  the deadline by {@link System#nanoTime()}
+     * @param condition the condition, that thread waits for
+     */
+    void parkUntil(long deadline, BooleanSupplier condition) {
+        register();
+        try {
+            long nanos = deadline - System.nanoTime();
+            if (nanos > 0 && !condition.getAsBoolean()) {
+                LockSupport.parkNanos(nanos);
+            }
+        } finally {
+            unregister();
+        }
+    }
+
+    /**
+     * Unparks waiting threads. Should be called after state of queue is changed by volatile write.
+     *
+     * @return true, if there are waiting threads
+     */
+    boolean signal() {
+        if (this.waiting.get() == 0) {
+            return false;
+        }
+        for (Thread waiter : this.waiters) {
+            LockSupport.unpark(waiter);
+        }
+        return true;
+    }
+
+    private void register() {
+        this.waiters.add(Thread.currentThread());
+        this.waiting.incrementAndGet();
+    }
+
+    private void unregister() {
+        this.waiting.decrementAndGet();
+        this.waiters.remove(Thread.currentThread());
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ *   Copyright 2019 the original author or authors.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *        https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package com.github.pandaxz.events.holder.filter;
+
+import com.github.pandaxz.events.dto.Change;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * @author Uladzislau Belykh
+ */
+class AndChangeFilter implements ChangeFilter {
+
+    private final ChangeFilter first;
+    private final ChangeFilter second;
+
+    AndChangeFilter(ChangeFilter first, ChangeFilter second) {
+        Objects.requireNonNull(first);
+        Objects.requireNonNull(second);
+        this.first = first;
+        this.second = second;
+    }
+
+    @Override
+    public boolean test(Change<Map<String, String>> event) {
+        return this.first.test(event) && this.second.test(event);
+    }
+
+    @Override
+    public Set<String> getColumns() {
+        Set<String> firstColumns = this.first.getColumns();
+        Set<String> secondColumns = this.second.getColumns();
+        if (firstColumns == null || secondColumns == null) {
+            return null;
+        }
+        Set<String> columns = new HashSet<>(firstColumns);
+        columns.addAll(secondColumns);
+        return columns;
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ *   Copyright 2019 the original author or authors.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *        https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package com.github.pandaxz.events.holder.filter;
+
+import com.github.pandaxz.events.dto.Change;
+import com.github.pandaxz.events.dto.ChangeType;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Predicate of change that is evaluated before change is added to event queue, rejected changes are not queued for handler.
+ *
+ * @author Uladzislau Belykh
+ */
+@FunctionalInterface
+public interface ChangeFilter {
+
+    /**
+     * Filter that accepts all changes.
+     */
+    ChangeFilter ALL = new ChangeFilter() {
+        @Override
+        public boolean test(Change<Map<String, String>> event) {
+            return true;
+        }
+
+        @Override
+        public Set<String> getColumns() {
+            return Collections.emptySet();
+        }
+    };
+
+    /**
+     * Tests change.
+     *
+     * @param event the change
+     * @return true, if change should be handled
+     */
+    boolean test(Change<Map<String, String>> event);
+
+    /**
+     * Gets columns that are read by filter.
+     *
+     * @return the columns or null if all columns are needed
+     */
+    default Set<String> getColumns() {
+        return null;
+    }
+
+    /**
+     * Combines filter with other filter, change is accepted if both filters accept it.
+     *
+     * @param other the other filter
+     * @return the combined filter
+     */
+    default ChangeFilter and(ChangeFilter other) {
+        return new AndChangeFilter(this, other);
+    }
+
+    /**
+     * Creates filter that accepts changes of provided types.
+     *
+     * @param types the change types
+     * @return the filter
+     */
+    static ChangeFilter types(ChangeType... types) {
+        return new ChangeTypeFilter(types);
+    }
+
+    /**
+     * Creates filter that accepts changes with column equal to one of provided values. New values are tested for inserts
+     * and updates, old values are tested for deletes.
+     *
+     * @param column the column
+     * @param values the values in text form
+     * @return the filter
+     */
+    static ChangeFilter columnIn(String column, String... values) {
+        return new ColumnValueFilter(column, new HashSet<>(Arrays.asList(values)));
+    }
+
+    /**
+     * Creates filter that accepts changes with column equal to provided value. New values are tested for inserts and
+     * updates, old values are tested for deletes.
+     *
+     * @param column the column
+     * @param value  the value in text form
+     * @return the filter
+     */
+    static ChangeFilter columnEquals(String column, String value) {
+        return columnIn(column, value);
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ *   Copyright 2019 the original author or authors.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *        https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package com.github.pandaxz.events.holder.filter;
+
+import com.github.pandaxz.events.dto.Change;
+import com.github.pandaxz.events.dto.ChangeType;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * @author Uladzislau Belykh
+ */
+class ColumnValueFilter implements ChangeFilter {
+
+    private final String column;
+    private final Set<String> values;
+
+    ColumnValueFilter(String column, Set<String> values) {
+        Objects.requireNonNull(column);
+        this.column = column;
+        this.values = values;
+    }
+
+    @Override
+    public boolean test(Change<Map<String, String>> event) {
+        Map<String, String> row = event.getType() == ChangeType.DELETE ? event.getOldValue() : event.getNewValue();
+        if (row == null) {
+            return false;
+        }
+        String value = row.get(this.column);
+        return value != null && this.values.contains(value);
+    }
+
+    @Override
+    public Set<String> getColumns() {
+        return Collections.singleton(this.column);
+    }
+}
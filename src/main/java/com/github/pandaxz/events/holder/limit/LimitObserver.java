@@ -4,4 +4,45 @@ public interface LimitObserver {
     void add();
 
     void delete();
+
+    void delete(int count);
+
+    /**
+     * Adds change with estimated size.
+     *
+     * @param bytes the size of change in bytes
+     */
+    default void add(long bytes) {
+        add();
+    }
+
+    /**
+     * Deletes handled changes with their total estimated size.
+     *
+     * @param count the count of changes
+     * @param bytes the size of changes in bytes
+     */
+    default void delete(int count, long bytes) {
+        delete(count);
+    }
+
+    /**
+     * Check is queue over its byte limit, so producer should wait before adding next change.
+     *
+     * @return the boolean
+     */
+    default boolean isOverByteLimit() {
+        return false;
+    }
+
+    /**
+     * Check can changes be added without waiting. Changes, that are over limit of empty queue, can be added.
+     *
+     * @param count the count of changes
+     * @param bytes the size of changes in bytes
+     * @return the boolean
+     */
+    default boolean isAvailable(int count, long bytes) {
+        return true;
+    }
 }
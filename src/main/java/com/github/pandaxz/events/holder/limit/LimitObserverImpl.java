@@ -1,41 +1,92 @@
 package com.github.pandaxz.events.holder.limit;
 
-import com.github.pandaxz.events.holder.CountLatch;
-
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class LimitObserverImpl implements LimitObserver {
 
     private int queueLimit;
-    private CountLatch countLatch;
+    private long byteLimit;
+    private TableCredits credits;
     private final AtomicInteger count = new AtomicInteger();
+    private final AtomicLong bytes = new AtomicLong();
     private final AtomicBoolean isClosed = new AtomicBoolean(false);
 
-    public LimitObserverImpl(int queueLimit, CountLatch countLatch) {
+    /**
+     * Instantiates a new Limit observer of queue, that takes credits of table for added changes.
+     *
+     * @param queueLimit the queue limit or 0 if queue is not limited
+     * @param credits    the credits of table
+     */
+    public LimitObserverImpl(int queueLimit, TableCredits credits) {
+        this(queueLimit, 0, credits);
+    }
+
+    /**
+     * Instantiates a new Limit observer of queue, that takes credits of table for added changes.
+     *
+     * @param queueLimit the queue limit or 0 if queue is not limited by count of changes
+     * @param byteLimit  the limit of estimated size of changes in queue or 0 if queue is not limited by size
+     * @param credits    the credits of table
+     */
+    public LimitObserverImpl(int queueLimit, long byteLimit, TableCredits credits) {
         this.queueLimit = queueLimit;
-        this.countLatch = countLatch;
+        this.byteLimit = byteLimit;
+        this.credits = credits;
     }
 
     @Override
     public void add(){
+        add(0);
+    }
+
+    @Override
+    public void add(long bytes){
         int value = count.incrementAndGet();
-        if(value > queueLimit){
+        long size = this.bytes.addAndGet(bytes);
+        credits.take(1, bytes);
+        if((queueLimit > 0 && value >= queueLimit) || (byteLimit > 0 && size > byteLimit)){
             boolean prevValueIsClosed = isClosed.getAndSet(true);
             if(!prevValueIsClosed){
-                countLatch.countUp();
+                credits.exhaustQueue();
             }
         }
     }
 
     @Override
     public void delete(){
-        int value = count.decrementAndGet();
-        if(value < queueLimit){
+        delete(1);
+    }
+
+    @Override
+    public void delete(int count){
+        delete(count, 0);
+    }
+
+    @Override
+    public void delete(int count, long bytes){
+        int value = this.count.addAndGet(-count);
+        long size = this.bytes.addAndGet(-bytes);
+        credits.give(count, bytes);
+        if((queueLimit <= 0 || value < queueLimit) && (byteLimit <= 0 || size <= byteLimit)){
             boolean prevValueIsClosed = isClosed.getAndSet(false);
             if(prevValueIsClosed){
-                countLatch.countDown();
+                credits.replenishQueue();
             }
         }
     }
+
+    @Override
+    public boolean isAvailable(int count, long bytes) {
+        int value = this.count.get();
+        long size = this.bytes.get();
+        return (queueLimit <= 0 || value == 0 || value + count <= queueLimit)
+                && (byteLimit <= 0 || size == 0 || size + bytes <= byteLimit);
+    }
+
+    @Override
+    public boolean isOverByteLimit() {
+        return byteLimit > 0 && bytes.get() > byteLimit;
+    }
 }
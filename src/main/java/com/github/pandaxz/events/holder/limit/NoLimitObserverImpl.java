@@ -10,4 +10,9 @@ public class NoLimitObserverImpl implements LimitObserver {
     public void delete() {
 
     }
+
+    @Override
+    public void delete(int count) {
+
+    }
 }
@@ -0,0 +1,157 @@
+/*
+ *   Copyright 2019 the original author or authors.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *        https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package com.github.pandaxz.events.holder.limit;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Credits of table changes. Every change added to queue of table takes credit and its estimated size, that are
+ * returned when change is handled. If table limits are set, credits are exhausted while table has more not handled
+ * changes or bytes than limits. Limits of queues are checked by queues, producer waits only for queues, which changes
+ * of its batch are added to. Credits with parent also take credits of parent, so parent credits limit all tables
+ * together.
+ *
+ * @author Uladzislau Belykh
+ */
+public class TableCredits {
+
+    private final String table;
+    private final TableCredits parent;
+    private volatile long limit;
+    private volatile long byteLimit;
+    private final AtomicLong used = new AtomicLong();
+    private final AtomicLong usedBytes = new AtomicLong();
+    private final AtomicInteger exhaustedQueues = new AtomicInteger();
+
+    public TableCredits(String table) {
+        this(table, null);
+    }
+
+    /**
+     * Instantiates a new Table credits.
+     *
+     * @param table  the table or null for credits of all tables
+     * @param parent the parent credits or null
+     */
+    public TableCredits(String table, TableCredits parent) {
+        this.table = table;
+        this.parent = parent;
+    }
+
+    /**
+     * Check are credits available, so changes of table can be added.
+     *
+     * @return the boolean
+     */
+    public boolean isAvailable() {
+        long limit = this.limit;
+        long byteLimit = this.byteLimit;
+        return (limit <= 0 || this.used.get() < limit) && (byteLimit <= 0 || this.usedBytes.get() < byteLimit);
+    }
+
+    public String getTable() {
+        return table;
+    }
+
+    public long getLimit() {
+        return limit;
+    }
+
+    /**
+     * Sets limit of not handled changes of table. Limit is checked before batch is added, so it can be exceeded by
+     * one batch.
+     *
+     * @param limit the limit or 0 if table is limited only by limits of its queues
+     */
+    public void setLimit(long limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Table limit should not be negative");
+        }
+        this.limit = limit;
+    }
+
+    public long getByteLimit() {
+        return byteLimit;
+    }
+
+    /**
+     * Sets limit of estimated size of not handled changes of table, see
+     * {@link com.github.pandaxz.events.dto.Change#getSize()}. Like limit of changes, it is checked before batch is
+     * added.
+     *
+     * @param byteLimit the limit in bytes or 0 if size is not limited
+     */
+    public void setByteLimit(long byteLimit) {
+        if (byteLimit < 0) {
+            throw new IllegalArgumentException("Table byte limit should not be negative");
+        }
+        this.byteLimit = byteLimit;
+    }
+
+    /**
+     * Gets estimated size of not handled changes of table.
+     *
+     * @return the size in bytes
+     */
+    public long getUsedBytes() {
+        return usedBytes.get();
+    }
+
+    /**
+     * Gets count of not handled changes of table.
+     *
+     * @return the count
+     */
+    public long getUsed() {
+        return used.get();
+    }
+
+    /**
+     * Gets count of queues of table that are over their limits.
+     *
+     * @return the count
+     */
+    public int getExhaustedQueues() {
+        return exhaustedQueues.get();
+    }
+
+    void take(int count, long bytes) {
+        this.used.addAndGet(count);
+        this.usedBytes.addAndGet(bytes);
+        if (this.parent != null) {
+            this.parent.take(count, bytes);
+        }
+    }
+
+    void give(int count, long bytes) {
+        this.used.addAndGet(-count);
+        this.usedBytes.addAndGet(-bytes);
+        if (this.parent != null) {
+            this.parent.give(count, bytes);
+        }
+    }
+
+    void exhaustQueue() {
+        this.exhaustedQueues.incrementAndGet();
+    }
+
+    void replenishQueue() {
+        this.exhaustedQueues.decrementAndGet();
+    }
+}
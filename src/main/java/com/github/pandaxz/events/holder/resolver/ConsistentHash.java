@@ -0,0 +1,51 @@
+/*
+ *   Copyright 2019 the original author or authors.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *        https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package com.github.pandaxz.events.holder.resolver;
+
+/**
+ * Jump consistent hash of Lamping and Veach: when bucket count is changed from n to m, only |n - m| / max(n, m) part
+ * of keys is moved to other buckets. It does not allocate and does not use tables.
+ *
+ * @author Uladzislau Belykh
+ */
+public final class ConsistentHash {
+
+    private ConsistentHash() {
+    }
+
+    /**
+     * Gets bucket of key.
+     *
+     * @param key         the key
+     * @param bucketCount the bucket count, should be positive
+     * @return the bucket from 0 to bucket count exclusive
+     */
+    public static int bucket(long key, int bucketCount) {
+        if (bucketCount <= 0) {
+            throw new IllegalArgumentException("Bucket count should be positive");
+        }
+        long bucket = -1;
+        long next = 0;
+        while (next < bucketCount) {
+            bucket = next;
+            key = key * 2862933555777941757L + 1;
+            next = (long) ((bucket + 1) * ((double) (1L << 31) / (double) ((key >>> 33) + 1)));
+        }
+        return (int) bucket;
+    }
+}
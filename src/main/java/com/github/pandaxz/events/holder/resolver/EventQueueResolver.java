@@ -20,10 +20,31 @@ package com.github.pandaxz.events.holder.resolver;
 import com.github.pandaxz.events.dto.Change;
 
 import java.util.Map;
+import java.util.Set;
 
 /**
  * @author Uladzislau Belykh
  */
 public interface EventQueueResolver {
     int resolve(int queueCount, Change<Map<String, String>> event);
+
+    /**
+     * Gets columns of table that are used for resolving.
+     *
+     * @param table the table
+     * @return the columns or null if all columns are needed
+     */
+    default Set<String> getColumns(String table) {
+        return null;
+    }
+
+    /**
+     * Check is order of changes in queue required. Queues of common holder with unordered resolver steal changes from
+     * each other.
+     *
+     * @return the boolean
+     */
+    default boolean isOrdered() {
+        return true;
+    }
 }
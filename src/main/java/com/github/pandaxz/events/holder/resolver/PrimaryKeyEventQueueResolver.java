@@ -19,19 +19,31 @@ package com.github.pandaxz.events.holder.resolver;
 
 import com.github.pandaxz.events.dto.Change;
 import com.github.pandaxz.events.dto.ChangeType;
+import com.github.pandaxz.events.dto.Row;
+import com.github.pandaxz.events.dto.RowSchema;
 import com.github.pandaxz.events.holder.provider.PrimaryKeyProvider;
 
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
+ * Resolves queue by hash of primary key values, so changes of the same row are handled in order. Primary keys of table
+ * are requested from provider once and cached, for {@link Row} values indexes of key columns are cached per schema.
+ * Hash of key values is mixed by murmur3 and mapped to queue by {@link ConsistentHash}, so it does not allocate and
+ * resize of queues moves only part of keys.
+ *
  * @author Uladzislau Belykh
  */
 public class PrimaryKeyEventQueueResolver implements EventQueueResolver {
 
     private PrimaryKeyProvider primaryKeyResolver;
+    private final Map<String, TableKeys> tableKeys = new ConcurrentHashMap<>();
 
     public PrimaryKeyEventQueueResolver(PrimaryKeyProvider primaryKeyResolver) {
         Objects.requireNonNull(primaryKeyResolver);
@@ -40,14 +52,107 @@ public class PrimaryKeyEventQueueResolver implements EventQueueResolver {
 
     @Override
     public int resolve(int queueCount, Change<Map<String, String>> event) {
-        Map<String, String> values;
-        if(event.getType().equals(ChangeType.DELETE)){
-            values = event.getOldValue();
-        }else{
-            values = event.getNewValue();
+        return ConsistentHash.bucket(hash(event), queueCount);
+    }
+
+    @Override
+    public Set<String> getColumns(String table) {
+        return getTableKeys(table).columnSet;
+    }
+
+    /**
+     * Computes hash of primary key values of change.
+     *
+     * @param event the change
+     * @return the hash
+     */
+    public int hash(Change<Map<String, String>> event) {
+        boolean isDelete = event.getType() == ChangeType.DELETE;
+        Map<String, String> values = isDelete ? event.getOldValue() : event.getNewValue();
+        TableKeys keys = getTableKeys(event.getTable());
+        int hash = 0;
+        if (values instanceof Row) {
+            Row row = (Row) values;
+            int[] indexes = keys.indexes(row.getSchema(), isDelete);
+            for (int index : indexes) {
+                hash = mix(hash, index < 0 ? 0 : Objects.hashCode(row.get(index)));
+            }
+        } else if (values != null) {
+            for (String column : keys.columns) {
+                hash = mix(hash, Objects.hashCode(values.get(column)));
+            }
+        }
+        return finish(hash, keys.columns.length);
+    }
+
+    private TableKeys getTableKeys(String table) {
+        TableKeys keys = this.tableKeys.get(table);
+        if (keys == null) {
+            keys = this.tableKeys.computeIfAbsent(table, name -> new TableKeys(this.primaryKeyResolver.getPrimaryKeys(name)));
+        }
+        return keys;
+    }
+
+    private static int mix(int hash, int value) {
+        int k = value * 0xcc9e2d51;
+        k = Integer.rotateLeft(k, 15);
+        k *= 0x1b873593;
+        hash ^= k;
+        hash = Integer.rotateLeft(hash, 13);
+        return hash * 5 + 0xe6546b64;
+    }
+
+    private static int finish(int hash, int length) {
+        hash ^= length;
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        hash ^= hash >>> 16;
+        return hash;
+    }
+
+    private static final class TableKeys {
+        private final String[] columns;
+        private final Set<String> columnSet;
+        private volatile SchemaIndexes rowIndexes;
+        private volatile SchemaIndexes keyIndexes;
+
+        private TableKeys(List<String> columns) {
+            this.columns = columns.toArray(new String[0]);
+            this.columnSet = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(this.columns)));
+        }
+
+        /**
+         * Gets indexes of key columns in schema, -1 if column is absent. Rows of updates and key rows of deletes have
+         * different schemas, so the last schema of every kind is cached.
+         */
+        private int[] indexes(RowSchema schema, boolean isKey) {
+            SchemaIndexes cached = isKey ? this.keyIndexes : this.rowIndexes;
+            if (cached != null && cached.schema == schema) {
+                return cached.indexes;
+            }
+            int[] indexes = new int[this.columns.length];
+            for (int i = 0; i < this.columns.length; i++) {
+                indexes[i] = schema.indexOf(this.columns[i]);
+            }
+            cached = new SchemaIndexes(schema, indexes);
+            if (isKey) {
+                this.keyIndexes = cached;
+            } else {
+                this.rowIndexes = cached;
+            }
+            return indexes;
+        }
+    }
+
+    private static final class SchemaIndexes {
+        private final RowSchema schema;
+        private final int[] indexes;
+
+        private SchemaIndexes(RowSchema schema, int[] indexes) {
+            this.schema = schema;
+            this.indexes = indexes;
         }
-        List<String> primaryKeys = primaryKeyResolver.getPrimaryKeys(event.getTable());
-        int hashCode = Arrays.hashCode(primaryKeys.stream().map(values::get).toArray());
-        return hashCode % queueCount;
     }
 }
@@ -0,0 +1,51 @@
+/*
+ *   Copyright 2019 the original author or authors.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *        https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package com.github.pandaxz.events.holder.resolver;
+
+import com.github.pandaxz.events.dto.Change;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Resolver of changes that do not need ordering, changes are distributed between queues by round robin. Queues of
+ * common holder with this resolver steal changes from each other.
+ *
+ * @author Uladzislau Belykh
+ */
+public class RoundRobinEventQueueResolver implements EventQueueResolver {
+
+    private final AtomicInteger counter = new AtomicInteger();
+
+    @Override
+    public int resolve(int queueCount, Change<Map<String, String>> event) {
+        return (counter.getAndIncrement() & Integer.MAX_VALUE) % queueCount;
+    }
+
+    @Override
+    public Set<String> getColumns(String table) {
+        return Collections.emptySet();
+    }
+
+    @Override
+    public boolean isOrdered() {
+        return false;
+    }
+}
@@ -19,7 +19,9 @@ package com.github.pandaxz.events.holder.resolver;
 
 import com.github.pandaxz.events.dto.Change;
 
+import java.util.Collections;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * @author Uladzislau Belykh
@@ -29,4 +31,9 @@ public class SimpleEventQueueResolver implements EventQueueResolver {
     public int resolve(int queueCount, Change<Map<String, String>> event) {
         return 0;
     }
+
+    @Override
+    public Set<String> getColumns(String table) {
+        return Collections.emptySet();
+    }
 }
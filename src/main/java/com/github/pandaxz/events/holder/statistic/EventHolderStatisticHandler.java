@@ -20,6 +20,7 @@ package com.github.pandaxz.events.holder.statistic;
 import com.github.pandaxz.events.dto.Change;
 
 import java.time.Instant;
+import java.util.List;
 import java.util.Map;
 
 public interface EventHolderStatisticHandler {
@@ -30,4 +31,33 @@ public interface EventHolderStatisticHandler {
     void eventHandled(String table, int queueNumber, String handlerName, Long timestamp, Change<Map<String, String>> event);
 
     void eventPolledFromQueue(String table, int queueNumber, String handlerName, Instant timestamp, Change<Map<String, String>> event);
+
+    /**
+     * Batch of events is polled from queue. By default every event of batch is reported as polled.
+     */
+    default void batchPolledFromQueue(String table, int queueNumber, String handlerName, Instant timestamp,
+                                      List<Change<Map<String, String>>> events) {
+        for (Change<Map<String, String>> event : events) {
+            eventPolledFromQueue(table, queueNumber, handlerName, timestamp, event);
+        }
+    }
+
+    /**
+     * Batch of events is handled by all handlers of queue. By default every event of batch is reported as handled.
+     */
+    default void batchHandled(String table, int queueNumber, String handlerName, Instant timestamp, List<Change<Map<String, String>>> events) {
+        for (Change<Map<String, String>> event : events) {
+            eventHandled(table, queueNumber, handlerName, timestamp, event);
+        }
+    }
+
+    /**
+     * Batch of events is handled by batch handler for duration in milliseconds. By default every event of batch is
+     * reported with duration of batch.
+     */
+    default void batchHandled(String table, int queueNumber, String handlerName, Long duration, List<Change<Map<String, String>>> events) {
+        for (Change<Map<String, String>> event : events) {
+            eventHandled(table, queueNumber, handlerName, duration, event);
+        }
+    }
 }
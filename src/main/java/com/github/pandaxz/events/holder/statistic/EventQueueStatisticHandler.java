@@ -20,6 +20,7 @@ package com.github.pandaxz.events.holder.statistic;
 import com.github.pandaxz.events.dto.Change;
 
 import java.time.Instant;
+import java.util.List;
 import java.util.Map;
 
 public class EventQueueStatisticHandler {
@@ -51,4 +52,16 @@ public class EventQueueStatisticHandler {
     public void eventHandled(String handlerName, Long duration, Change<Map<String, String>> event) {
         this.statisticHandler.eventHandled(this.table, this.queueNumber, handlerName, duration, event);
     }
+
+    public void batchPolledFromQueue(Instant timestamp, List<Change<Map<String, String>>> events) {
+        this.statisticHandler.batchPolledFromQueue(this.table, this.queueNumber, this.handlerName, timestamp, events);
+    }
+
+    public void batchHandled(Instant timestamp, List<Change<Map<String, String>>> events) {
+        this.statisticHandler.batchHandled(this.table, this.queueNumber, this.handlerName, timestamp, events);
+    }
+
+    public void batchHandled(String handlerName, Long duration, List<Change<Map<String, String>>> events) {
+        this.statisticHandler.batchHandled(this.table, this.queueNumber, handlerName, duration, events);
+    }
 }
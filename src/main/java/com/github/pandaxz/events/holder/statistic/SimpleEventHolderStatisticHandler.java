@@ -20,6 +20,7 @@ package com.github.pandaxz.events.holder.statistic;
 import com.github.pandaxz.events.dto.Change;
 
 import java.time.Instant;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -45,4 +46,20 @@ public class SimpleEventHolderStatisticHandler implements EventHolderStatisticHa
     public void eventPolledFromQueue(String table, int queueNumber, String handlerName, Instant timestamp, Change<Map<String, String>> event) {
 
     }
+
+    @Override
+    public void batchPolledFromQueue(String table, int queueNumber, String handlerName, Instant timestamp,
+                                     List<Change<Map<String, String>>> events) {
+
+    }
+
+    @Override
+    public void batchHandled(String table, int queueNumber, String handlerName, Instant timestamp, List<Change<Map<String, String>>> events) {
+
+    }
+
+    @Override
+    public void batchHandled(String table, int queueNumber, String handlerName, Long duration, List<Change<Map<String, String>>> events) {
+
+    }
 }
@@ -0,0 +1,96 @@
+/*
+ *   Copyright 2019 the original author or authors.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *        https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+
+package com.github.pandaxz.events.idle;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * {@link IdleStrategy} that spins first, then yields and then parks with exponentially growing time up to the
+ * maximum. It returns to hot polling as soon as {@link #reset()} is called, so latency stays low under load and
+ * idle thread does not burn CPU. Park can be interrupted by {@link LockSupport#unpark(Thread)}.
+ *
+ * @author Uladzislau Belykh
+ */
+public class BackoffIdleStrategy implements IdleStrategy {
+
+    private static final long DEFAULT_MAX_SPINS = 100;
+    private static final long DEFAULT_MAX_YIELDS = 100;
+    private static final long DEFAULT_MIN_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(1);
+    private static final long DEFAULT_MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final long maxSpins;
+    private final long maxYields;
+    private final long minParkNanos;
+    private final long maxParkNanos;
+
+    private long spins;
+    private long yields;
+    private long parkNanos;
+
+    /**
+     * Instantiates a new Backoff idle strategy with 100 spins, 100 yields and park from 1 microsecond to 1 millisecond.
+     */
+    public BackoffIdleStrategy() {
+        this(DEFAULT_MAX_SPINS, DEFAULT_MAX_YIELDS, DEFAULT_MIN_PARK_NANOS, DEFAULT_MAX_PARK_NANOS);
+    }
+
+    /**
+     * Instantiates a new Backoff idle strategy.
+     *
+     * @param maxSpins     the max spins
+     * @param maxYields    the max yields
+     * @param minParkNanos the min park time in nanoseconds
+     * @param maxParkNanos the max park time in nanoseconds
+     */
+    public BackoffIdleStrategy(long maxSpins, long maxYields, long minParkNanos, long maxParkNanos) {
+        if (maxSpins < 0 || maxYields < 0 || minParkNanos <= 0 || maxParkNanos < minParkNanos) {
+            throw new IllegalArgumentException();
+        }
+        this.maxSpins = maxSpins;
+        this.maxYields = maxYields;
+        this.minParkNanos = minParkNanos;
+        this.maxParkNanos = maxParkNanos;
+        this.parkNanos = minParkNanos;
+    }
+
+    @Override
+    public void idle() throws InterruptedException {
+        if (spins < maxSpins) {
+            spins++;
+            Thread.onSpinWait();
+        } else if (yields < maxYields) {
+            yields++;
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(parkNanos);
+            parkNanos = Math.min(parkNanos << 1, maxParkNanos);
+        }
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+    }
+
+    @Override
+    public void reset() {
+        spins = 0;
+        yields = 0;
+        parkNanos = minParkNanos;
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ *   Copyright 2019 the original author or authors.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *        https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package com.github.pandaxz.events.idle;
+
+/**
+ * {@link IdleStrategy} that spins on every idle poll. It gives the lowest latency, but occupies the whole core, so it
+ * should be used only by threads pinned to dedicated cores.
+ *
+ * @author Uladzislau Belykh
+ */
+public class BusySpinIdleStrategy implements IdleStrategy {
+
+    @Override
+    public void idle() throws InterruptedException {
+        Thread.onSpinWait();
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+    }
+
+    @Override
+    public void reset() {
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ *   Copyright 2019 the original author or authors.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *        https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+
+package com.github.pandaxz.events.idle;
+
+/**
+ * Strategy of waiting when there is no work for polling thread. Instance keeps state of one thread and should not be
+ * shared.
+ *
+ * @author Uladzislau Belykh
+ */
+public interface IdleStrategy {
+
+    /**
+     * Wait, because the last poll returned nothing. Subsequent calls may wait longer.
+     *
+     * @throws InterruptedException if thread was interrupted
+     */
+    void idle() throws InterruptedException;
+
+    /**
+     * Reset state, because the last poll returned work.
+     */
+    void reset();
+}
@@ -0,0 +1,57 @@
+/*
+ *   Copyright 2019 the original author or authors.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *        https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+
+package com.github.pandaxz.events.idle;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * {@link IdleStrategy} that parks fixed time on every idle poll. Park can be interrupted by
+ * {@link LockSupport#unpark(Thread)}, so stopped producer does not wait the whole pause.
+ *
+ * @author Uladzislau Belykh
+ */
+public class SleepingIdleStrategy implements IdleStrategy {
+
+    private final long sleepNanos;
+
+    /**
+     * Instantiates a new Sleeping idle strategy.
+     *
+     * @param sleepMillis the sleep time in milliseconds
+     */
+    public SleepingIdleStrategy(long sleepMillis) {
+        if (sleepMillis < 0) {
+            throw new IllegalArgumentException("Sleep time should be not negative");
+        }
+        this.sleepNanos = TimeUnit.MILLISECONDS.toNanos(sleepMillis);
+    }
+
+    @Override
+    public void idle() throws InterruptedException {
+        LockSupport.parkNanos(sleepNanos);
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+    }
+
+    @Override
+    public void reset() {
+    }
+}
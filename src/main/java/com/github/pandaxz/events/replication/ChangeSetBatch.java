@@ -0,0 +1,139 @@
+/*
+ *   Copyright 2019 the original author or authors.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *        https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+
+package com.github.pandaxz.events.replication;
+
+import com.github.pandaxz.events.dto.Change;
+import com.github.pandaxz.events.dto.ChangeSet;
+import org.postgresql.replication.LogSequenceNumber;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Coalesces consecutive decoded change sets, so several transactions are handled by one call of
+ * {@link ReplicationEventHandler} and committed once by the highest lsn. Batch is ready when it has max count of
+ * changes or when max delay is passed since its first change set. Instance is not thread safe.
+ *
+ * @author Uladzislau Belykh
+ */
+class ChangeSetBatch {
+    private final int maxEvents;
+    private final long maxDelayNanos;
+
+    private List<Change<Map<String, String>>> changes = new ArrayList<>();
+    private boolean pending;
+    private long startNanos;
+    private Instant readTime;
+    private boolean commit;
+    private LogSequenceNumber lastReceiveLsn;
+    private LogSequenceNumber nextLsn;
+    private String commitTime;
+
+    /**
+     * Instantiates a new Change set batch.
+     *
+     * @param maxEvents     the max count of changes in batch
+     * @param maxDelayNanos the max delay of the first change set in batch
+     */
+    ChangeSetBatch(int maxEvents, long maxDelayNanos) {
+        this.maxEvents = maxEvents;
+        this.maxDelayNanos = maxDelayNanos;
+    }
+
+    /**
+     * Add decoded change set of replication event to batch.
+     *
+     * @param replicationEvent the replication event
+     * @param changeSet        the decoded change set
+     */
+    void add(ReplicationEvent replicationEvent, ChangeSet changeSet) {
+        if (!this.pending) {
+            this.pending = true;
+            this.startNanos = System.nanoTime();
+            this.readTime = replicationEvent.getReadTime();
+        }
+        this.changes.addAll(changeSet.getChanges());
+        if (changeSet.isCommit()) {
+            this.commit = true;
+            this.lastReceiveLsn = replicationEvent.getLastReceiveLSN();
+            this.nextLsn = changeSet.getNextLsn();
+            this.commitTime = changeSet.getCommitTime();
+        }
+    }
+
+    /**
+     * Check is batch should be handled now.
+     *
+     * @return the boolean
+     */
+    boolean isReady() {
+        return this.pending && (this.changes.size() >= this.maxEvents || System.nanoTime() - this.startNanos >= this.maxDelayNanos);
+    }
+
+    /**
+     * Check is nothing was added since last clear.
+     *
+     * @return the boolean
+     */
+    boolean isEmpty() {
+        return !this.pending;
+    }
+
+    /**
+     * Gets change set with all added changes and the last added commit.
+     *
+     * @return the change set
+     */
+    ChangeSet toChangeSet() {
+        return new ChangeSet(this.changes, this.nextLsn, this.commitTime, this.commit);
+    }
+
+    /**
+     * Gets read time of the first added event.
+     *
+     * @return the read time
+     */
+    Instant getReadTime() {
+        return readTime;
+    }
+
+    /**
+     * Gets last receive lsn of the last added commit.
+     *
+     * @return the last receive lsn
+     */
+    LogSequenceNumber getLastReceiveLsn() {
+        return lastReceiveLsn;
+    }
+
+    /**
+     * Start new batch. Changes of previous batch are not reused, they can be still kept by event handler.
+     */
+    void clear() {
+        this.changes = new ArrayList<>();
+        this.pending = false;
+        this.readTime = null;
+        this.commit = false;
+        this.lastReceiveLsn = null;
+        this.nextLsn = null;
+        this.commitTime = null;
+    }
+}
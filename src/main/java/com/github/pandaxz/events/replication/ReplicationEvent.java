@@ -19,6 +19,8 @@ package com.github.pandaxz.events.replication;
 
 import org.postgresql.replication.LogSequenceNumber;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 
 /**
@@ -30,6 +32,7 @@ public class ReplicationEvent {
         private Instant readTime;
         private LogSequenceNumber lastReceiveLSN;
         private String message;
+        private ByteBuffer buffer;
 
     /**
      * Instantiates a new Replication event.
@@ -44,6 +47,20 @@ public class ReplicationEvent {
         this.message = msg;
     }
 
+    /**
+     * Instantiates a new Replication event without copying of message. Buffer is kept as read-only view, message
+     * text is decoded only on demand.
+     *
+     * @param buffer         the buffer with UTF-8 message, from position to limit
+     * @param readTime       the read time
+     * @param lastReceiveLSN the last receive lsn
+     */
+    public ReplicationEvent(ByteBuffer buffer, Instant readTime, LogSequenceNumber lastReceiveLSN) {
+        this.readTime = readTime;
+        this.lastReceiveLSN = lastReceiveLSN;
+        this.buffer = buffer.slice().asReadOnlyBuffer();
+    }
+
     /**
      * Gets read time.
      *
@@ -81,14 +98,30 @@ public class ReplicationEvent {
     }
 
     /**
-     * Gets message.
+     * Gets message. If event was created from buffer, message is decoded from UTF-8 on first call.
      *
      * @return the message
      */
     public String getMessage() {
+        if (message == null && buffer != null) {
+            message = StandardCharsets.UTF_8.decode(buffer.duplicate()).toString();
+        }
         return message;
     }
 
+    /**
+     * Gets read-only view of message bytes from position 0 to limit. Decoders should use absolute reads, buffer
+     * is shared with other callers.
+     *
+     * @return the buffer
+     */
+    public ByteBuffer getBuffer() {
+        if (buffer == null && message != null) {
+            buffer = ByteBuffer.wrap(message.getBytes(StandardCharsets.UTF_8)).asReadOnlyBuffer();
+        }
+        return buffer;
+    }
+
     /**
      * Sets message.
      *
@@ -96,5 +129,6 @@ public class ReplicationEvent {
      */
     public void setMessage(String message) {
         this.message = message;
+        this.buffer = null;
     }
 }
@@ -17,7 +17,9 @@
 
 package com.github.pandaxz.events.replication;
 
-import com.github.pandaxz.events.dto.json.ChangeEvent;
+import com.github.pandaxz.events.dto.ChangeSet;
+
+import java.util.Set;
 
 /**
  * A interface for handle events from {@link ReplicationEventProducer}.
@@ -27,10 +29,21 @@ import com.github.pandaxz.events.dto.json.ChangeEvent;
 public interface ReplicationEventHandler {
 
     /**
-     * Handling changeEvent.
+     * Handling change set.
+     *
+     * @param changeSet the change set
+     * @return true, if change set is handled and can be committed
+     */
+    boolean handle(ChangeSet changeSet);
+
+    /**
+     * Gets columns of table that should be decoded, other columns are skipped by decoder.
      *
-     * @param changeEvent the change event
+     * @param table the table
+     * @return the columns or null if all columns are needed
      */
-    boolean handle(ChangeEvent changeEvent);
+    default Set<String> getColumns(String table) {
+        return null;
+    }
 
 }
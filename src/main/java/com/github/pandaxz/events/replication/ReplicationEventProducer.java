@@ -17,8 +17,11 @@
 
 package com.github.pandaxz.events.replication;
 
-import com.github.pandaxz.events.dto.json.ChangeEvent;
-import com.google.gson.Gson;
+import com.github.pandaxz.events.dto.ChangePool;
+import com.github.pandaxz.events.dto.ChangeSet;
+import com.github.pandaxz.events.idle.IdleStrategy;
+import com.github.pandaxz.events.idle.SleepingIdleStrategy;
+import com.github.pandaxz.events.replication.decoder.ReplicationMessageDecoder;
 import org.postgresql.replication.LogSequenceNumber;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -26,9 +29,14 @@ import org.slf4j.LoggerFactory;
 import java.io.Closeable;
 import java.io.IOException;
 import java.sql.SQLException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * Use {@link ReplicationStream} for receive events from PostgreSql replication stream and provide
@@ -43,9 +51,18 @@ public class ReplicationEventProducer implements Closeable {
     private ReplicationEventHandler replicationEventHandler;
     private ReplicationEventProducerStatisticHandler statisticHandler = new SimpleReplicationEventProducerStatisticHandler();
 
-    private Gson gson = new Gson();
+    private ReplicationMessageDecoder decoder;
     private CompletableFuture producer;
     private volatile boolean producing = false;
+    private volatile Thread producerThread;
+    private long idleSince;
+    private long lastPause;
+    private int pipelineCapacity;
+    private int pipelineDecoders = 1;
+    private int coalescingMaxEvents;
+    private long coalescingMaxDelayNanos;
+    private ChangePool changePool;
+    private boolean transactionHasChanges;
 
     /**
      * Instantiates a new Replication event producer.
@@ -59,6 +76,7 @@ public class ReplicationEventProducer implements Closeable {
 
         this.replicationStream = replicationStream;
         this.replicationEventHandler = replicationEventHandler;
+        this.decoder = createDecoder();
     }
 
     /**
@@ -77,14 +95,34 @@ public class ReplicationEventProducer implements Closeable {
      * @param executor the executor
      */
     public void start(Long idlePollTimeout, Executor executor) {
+        this.start(new SleepingIdleStrategy(idlePollTimeout), executor);
+    }
+
+    /**
+     * Start producing with provided idle strategy in thread from default pool.
+     *
+     * @param idleStrategy the idle strategy, e.g. {@link com.github.pandaxz.events.idle.BackoffIdleStrategy}
+     */
+    public void start(IdleStrategy idleStrategy) {
+        this.start(idleStrategy, null);
+    }
+
+    /**
+     * Start producing with provided idle strategy in thread from executor.
+     *
+     * @param idleStrategy the idle strategy, e.g. {@link com.github.pandaxz.events.idle.BackoffIdleStrategy}
+     * @param executor     the executor
+     */
+    public void start(IdleStrategy idleStrategy, Executor executor) {
+        Objects.requireNonNull(idleStrategy, "Idle strategy should be not null");
         if (this.producer != null) {
             throw new RuntimeException("Producer is running");
         }
         this.producing = true;
         if (executor == null) {
-            this.producer = CompletableFuture.runAsync(() -> this.run(idlePollTimeout));
+            this.producer = CompletableFuture.runAsync(() -> this.run(idleStrategy, executor));
         } else {
-            this.producer = CompletableFuture.runAsync(() -> this.run(idlePollTimeout), executor);
+            this.producer = CompletableFuture.runAsync(() -> this.run(idleStrategy, executor), executor);
         }
         statisticHandler.producerIsRunning();
     }
@@ -106,6 +144,10 @@ public class ReplicationEventProducer implements Closeable {
             return;
         }
         producing = false;
+        Thread thread = producerThread;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
         producer.join();
         producer = null;
         statisticHandler.producerIsStopped();
@@ -165,6 +207,7 @@ public class ReplicationEventProducer implements Closeable {
      */
     public void setReplicationStream(ReplicationStream replicationStream) {
         this.replicationStream = replicationStream;
+        this.decoder = createDecoder();
     }
 
     /**
@@ -183,6 +226,7 @@ public class ReplicationEventProducer implements Closeable {
      */
     public void setReplicationEventHandler(ReplicationEventHandler replicationEventHandler) {
         this.replicationEventHandler = replicationEventHandler;
+        this.decoder.setColumnProjection(replicationEventHandler::getColumns);
     }
 
     /**
@@ -195,12 +239,61 @@ public class ReplicationEventProducer implements Closeable {
         this.statisticHandler = statisticHandler;
     }
 
+    /**
+     * Enable pipelined producing. Replication stream is read in producer thread, messages are decoded by decoder
+     * stages and handled in order of receiving by dispatcher stage, stages use threads from producer executor.
+     * Statistic handler is called from all stages. Should be called before start.
+     *
+     * @param capacity the max count of received but not handled messages, zero disables pipelined producing
+     * @param decoders the count of decoder stages, more than one is used only if output plugin supports parallel
+     *                 decoding
+     */
+    public void setPipeline(int capacity, int decoders) {
+        if (capacity < 0 || decoders <= 0) {
+            throw new IllegalArgumentException("Pipeline capacity should be not negative and decoders count should be positive");
+        }
+        this.pipelineCapacity = capacity;
+        this.pipelineDecoders = decoders;
+    }
+
+    /**
+     * Enable coalescing of consecutive transactions: their changes are provided to replication event handler by one
+     * call and committed once by the highest lsn. Changes are provided when batch has max count of changes or when max
+     * delay is passed since the first received event of batch. Statistic handler is notified once per batch. Should be
+     * called before start.
+     *
+     * @param maxEvents the max count of changes in batch, zero disables coalescing
+     * @param maxDelay  the max delay of the first event in batch, it can be exceeded by pause of idle strategy
+     * @param unit      the unit of max delay
+     */
+    public void setCoalescing(int maxEvents, long maxDelay, TimeUnit unit) {
+        if (maxEvents < 0 || maxDelay < 0) {
+            throw new IllegalArgumentException("Coalescing limits should be not negative");
+        }
+        this.coalescingMaxEvents = maxEvents;
+        this.coalescingMaxDelayNanos = unit.toNanos(maxDelay);
+    }
+
+    /**
+     * Enable pooling of changes. Decoded changes are acquired from pool and returned to it when the last event queue
+     * handles them, so handlers should not keep changes and their values after handling. Replication event handler
+     * should release every change when it is not needed, as {@link com.github.pandaxz.events.holder.EventHolder} does,
+     * changes that are not released are collected by gc. Should be called before start.
+     *
+     * @param changePool the change pool, null disables pooling
+     */
+    public void setChangePool(ChangePool changePool) {
+        this.changePool = changePool;
+        this.decoder.setChangePool(changePool);
+    }
+
     @Override
     public void close() throws IOException {
         stop();
     }
 
-    private void run(Long idlePollTimeout) {
+    private void run(IdleStrategy idleStrategy, Executor executor) {
+        this.producerThread = Thread.currentThread();
         try {
             if (!slotExists()) {
                 createSlot();
@@ -210,62 +303,178 @@ public class ReplicationEventProducer implements Closeable {
         }
 
         try {
-            while (this.producing) {
-                boolean isProduced = produce();
-                if (!isProduced) {
-                    Thread.sleep(idlePollTimeout);
+            if (pipelineCapacity > 0) {
+                new ReplicationPipeline(this, replicationStream, createPipelineDecoders(), pipelineCapacity)
+                        .run(idleStrategy, executor, () -> this.producing);
+            } else {
+                ChangeSetBatch batch = createBatch();
+                while (this.producing) {
+                    boolean isProduced = produce(batch);
+                    if (!isProduced) {
+                        idle(idleStrategy);
+                    } else {
+                        idleStrategy.reset();
+                    }
+                }
+                if (batch != null && !batch.isEmpty()) {
+                    flush(batch);
                 }
             }
         } catch (InterruptedException e) {
             this.producing = false;
             this.producer = null;
             logger.error("Producer was interrupted", e);
+        } finally {
+            this.producerThread = null;
+        }
+    }
+
+    private ReplicationMessageDecoder createDecoder() {
+        ReplicationMessageDecoder decoder = replicationStream.getOutputPlugin().createDecoder();
+        decoder.setColumnProjection(this.replicationEventHandler::getColumns);
+        decoder.setChangePool(this.changePool);
+        return decoder;
+    }
+
+    private List<ReplicationMessageDecoder> createPipelineDecoders() {
+        int count = 1;
+        if (pipelineDecoders > 1) {
+            if (replicationStream.getOutputPlugin().supportsParallelDecoding()) {
+                count = pipelineDecoders;
+            } else {
+                logger.warn("Output plugin does not support parallel decoding, one decoder is used");
+            }
+        }
+        List<ReplicationMessageDecoder> decoders = new ArrayList<>(count);
+        decoders.add(decoder);
+        for (int i = 1; i < count; i++) {
+            decoders.add(createDecoder());
         }
+        return decoders;
     }
 
-    private boolean produce() {
+    /**
+     * Receive event from replication stream and collect receiving statistic.
+     *
+     * @return the replication event or null if no events
+     */
+    ReplicationEvent receive() {
         ReplicationEvent replicationEvent = replicationStream.receive();
         if (replicationEvent == null) {
             logger.trace("Replication stream return null");
+            if (idleSince == 0) {
+                idleSince = System.nanoTime();
+            }
+            return null;
+        }
+        if (idleSince != 0) {
+            statisticHandler.eventIsReceivedAfterIdle(System.nanoTime() - idleSince, lastPause);
+            idleSince = 0;
+        }
+        statisticHandler.eventIsReceived();
+        return replicationEvent;
+    }
+
+    /**
+     * Idle with provided strategy and remember pause duration.
+     *
+     * @param idleStrategy the idle strategy
+     * @throws InterruptedException if thread is interrupted
+     */
+    void idle(IdleStrategy idleStrategy) throws InterruptedException {
+        long pauseStart = System.nanoTime();
+        idleStrategy.idle();
+        lastPause = System.nanoTime() - pauseStart;
+    }
+
+    /**
+     * Create batch for coalescing of change sets.
+     *
+     * @return the batch or null if coalescing is disabled
+     */
+    ChangeSetBatch createBatch() {
+        if (coalescingMaxEvents == 0) {
+            return null;
+        }
+        return new ChangeSetBatch(coalescingMaxEvents, coalescingMaxDelayNanos);
+    }
+
+    /**
+     * Provide decoded changes to replication event handler. Return false, if changes are not handled and uncommitted
+     * events should be received again.
+     *
+     * @param readTime the read time of the first event of changes
+     * @param changes  the decoded changes
+     * @return the boolean
+     */
+    boolean handle(Instant readTime, ChangeSet changes) {
+        if (changes.getChanges().isEmpty()) {
+            if (changes.isCommit()) {
+                if (!transactionHasChanges) {
+                    statisticHandler.eventIsSkipped();
+                }
+                transactionHasChanges = false;
+            }
+            return true;
+        }
+        if (!replicationEventHandler.handle(changes)) {
+            logger.trace("The handling was not succeded");
+            // uncommitted events are received again from the begin of transaction
+            transactionHasChanges = false;
             return false;
         }
+        transactionHasChanges = !changes.isCommit();
+        statisticHandler.eventIsHandled(changes, readTime);
+        return true;
+    }
+
+    private boolean produce(ChangeSetBatch batch) {
+        ReplicationEvent replicationEvent = receive();
+        if (replicationEvent == null) {
+            return batch != null && batch.isReady() && flush(batch);
+        }
 
         try {
-            statisticHandler.eventIsReceived();
-            String message = replicationEvent.getMessage();
-            ChangeEvent changes = null;
-            if (shouldProcessMessage(message)) {
-                changes = gson.fromJson(message, ChangeEvent.class);
-                if (changes.getChanges().isEmpty()) {
-                    return false;
-                }
-                if(!replicationEventHandler.handle(changes)){
-                    logger.trace("The handling was not succeded");
-                    replicationStream.resetUncommitted();
-                    return false;
-                }
-                statisticHandler.eventIsHandled(changes, replicationEvent.getReadTime());
+            ChangeSet changes = decoder.decode(replicationEvent.getBuffer());
+            if (batch == null) {
+                return handleAndCommit(replicationEvent.getReadTime(), replicationEvent.getLastReceiveLSN(), changes);
             }
-            LogSequenceNumber nextLsn = getNextLsn(changes);
-            replicationStream.commit(replicationEvent.getLastReceiveLSN(), nextLsn);
+            batch.add(replicationEvent, changes);
+            return !batch.isReady() || flush(batch);
         } catch (Exception e) {
             logger.debug("Replication message handling throw error", e);
+            if (batch != null) {
+                batch.clear();
+            }
+            transactionHasChanges = false;
             replicationStream.resetUncommitted();
             return false;
         }
-        return true;
     }
 
-    private boolean shouldProcessMessage(String msg) {
-        return !msg.matches("\\{[\\s\\S]*\"change\":\\s*\\[\\s*\\]\\s*\\}$");
+    private boolean flush(ChangeSetBatch batch) {
+        ChangeSet changes = batch.toChangeSet();
+        Instant readTime = batch.getReadTime();
+        LogSequenceNumber lastReceiveLSN = batch.getLastReceiveLsn();
+        batch.clear();
+        try {
+            return handleAndCommit(readTime, lastReceiveLSN, changes);
+        } catch (Exception e) {
+            logger.debug("Replication message handling throw error", e);
+            transactionHasChanges = false;
+            replicationStream.resetUncommitted();
+            return false;
+        }
     }
 
-    private LogSequenceNumber getNextLsn(ChangeEvent changes) {
-        LogSequenceNumber nextLsn = null;
-        if (changes != null) {
-            nextLsn = LogSequenceNumber.valueOf(changes.getNextLsn());
+    private boolean handleAndCommit(Instant readTime, LogSequenceNumber lastReceiveLSN, ChangeSet changes) {
+        if (!handle(readTime, changes)) {
+            replicationStream.resetUncommitted();
+            return false;
         }
-
-        return nextLsn;
+        if (changes.isCommit()) {
+            replicationStream.commit(lastReceiveLSN, changes.getNextLsn());
+        }
+        return true;
     }
 }
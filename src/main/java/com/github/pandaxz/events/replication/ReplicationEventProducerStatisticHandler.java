@@ -17,7 +17,7 @@
 
 package com.github.pandaxz.events.replication;
 
-import com.github.pandaxz.events.dto.json.ChangeEvent;
+import com.github.pandaxz.events.dto.ChangeSet;
 
 import java.time.Instant;
 
@@ -43,11 +43,26 @@ public interface ReplicationEventProducerStatisticHandler {
      */
     void eventIsReceived();
 
+    /**
+     * The first event is received after producer was idle.
+     *
+     * @param idleNanos      the time since the first empty poll in nanoseconds
+     * @param lastPauseNanos the duration of the last idle pause in nanoseconds, it is the upper bound of latency
+     *                       added by idle strategy
+     */
+    void eventIsReceivedAfterIdle(long idleNanos, long lastPauseNanos);
+
+    /**
+     * Event is skipped, because it commits transaction without changes, e.g. empty transaction. Events without
+     * changes inside transaction, e.g. begin of transaction, relation or chunk, are not counted.
+     */
+    void eventIsSkipped();
+
     /**
      * Event is handled.
      *
      * @param changes  the changes
      * @param readTime the read time
      */
-    void eventIsHandled(ChangeEvent changes, Instant readTime);
+    void eventIsHandled(ChangeSet changes, Instant readTime);
 }
@@ -0,0 +1,323 @@
+/*
+ *   Copyright 2019 the original author or authors.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *        https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+
+package com.github.pandaxz.events.replication;
+
+import com.github.pandaxz.events.dto.ChangeSet;
+import com.github.pandaxz.events.idle.BackoffIdleStrategy;
+import com.github.pandaxz.events.idle.IdleStrategy;
+import com.github.pandaxz.events.replication.decoder.ReplicationMessageDecoder;
+import org.postgresql.replication.LogSequenceNumber;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Pipelined producing of replication events. Reader receives messages from replication stream, decoders decode them
+ * and dispatcher provides decoded change sets to {@link ReplicationEventHandler} in order of receiving. So reading
+ * of replication stream is not stopped while event handler waits for free space.
+ * <p>
+ * Replication stream is used by reader thread only: commits and resets requested by dispatcher are applied by reader.
+ * After reset all received but not dispatched messages are discarded, they will be received again. On stop reader
+ * stops receiving, stages handle all received messages and then exit; if some of them are not handled, uncommitted
+ * messages are reset, so they are received again by the next run.
+ *
+ * @author Uladzislau Belykh
+ */
+class ReplicationPipeline {
+    private static final Logger logger = LoggerFactory.getLogger(ReplicationPipeline.class);
+
+    private static final long POLL_TIMEOUT_MILLIS = 100;
+
+    private final ReplicationEventProducer producer;
+    private final ReplicationStream replicationStream;
+    private final List<ReplicationMessageDecoder> decoders;
+    private final int capacity;
+
+    private final Semaphore permits;
+    private final BlockingQueue<Item> received;
+    private final AtomicReferenceArray<Item> decoded;
+    private final AtomicReference<Commit> pendingCommit = new AtomicReference<>();
+    private final AtomicInteger activeDecoders = new AtomicInteger();
+    private volatile boolean resetRequested;
+    private volatile boolean running;
+    private volatile long end;
+
+    private long sequence;
+    private int epoch;
+
+    /**
+     * Instantiates a new Replication pipeline.
+     *
+     * @param producer          the producer, used for receiving and handling of events
+     * @param replicationStream the replication stream
+     * @param decoders          the decoders, each decoder is used by own stage
+     * @param capacity          the max count of received but not dispatched messages
+     */
+    ReplicationPipeline(ReplicationEventProducer producer, ReplicationStream replicationStream,
+                        List<ReplicationMessageDecoder> decoders, int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Pipeline capacity should be positive");
+        }
+        if (decoders.isEmpty()) {
+            throw new IllegalArgumentException("Pipeline requires at least one decoder");
+        }
+        this.producer = producer;
+        this.replicationStream = replicationStream;
+        this.decoders = decoders;
+        this.capacity = capacity;
+        this.permits = new Semaphore(capacity);
+        this.received = new ArrayBlockingQueue<>(capacity);
+        this.decoded = new AtomicReferenceArray<>(capacity);
+    }
+
+    /**
+     * Run reader in current thread and decoders and dispatcher in threads from executor, while producing is true.
+     * Returns when all received messages are handled or reset.
+     *
+     * @param idleStrategy the idle strategy of reader
+     * @param executor     the executor, every stage gets own daemon thread if it is null
+     * @param producing    the producing flag
+     * @throws InterruptedException if reader is interrupted
+     */
+    void run(IdleStrategy idleStrategy, Executor executor, BooleanSupplier producing) throws InterruptedException {
+        this.running = true;
+        this.activeDecoders.set(decoders.size());
+        List<CompletableFuture<Void>> stages = new ArrayList<>(decoders.size() + 1);
+        for (ReplicationMessageDecoder decoder : decoders) {
+            stages.add(runAsync(() -> this.decode(decoder), executor, "replication-decoder"));
+        }
+        stages.add(runAsync(this::dispatch, executor, "replication-dispatcher"));
+
+        try {
+            while (producing.getAsBoolean()) {
+                applyRequests();
+                if (!permits.tryAcquire()) {
+                    producer.idle(idleStrategy);
+                    continue;
+                }
+                ReplicationEvent replicationEvent = producer.receive();
+                if (replicationEvent == null) {
+                    permits.release();
+                    producer.idle(idleStrategy);
+                    continue;
+                }
+                idleStrategy.reset();
+                received.add(new Item(sequence++, epoch, replicationEvent));
+            }
+        } finally {
+            // end is published before running flag, so stages that see stop know count of messages to handle
+            this.end = sequence;
+            this.running = false;
+            try {
+                CompletableFuture.allOf(stages.toArray(new CompletableFuture<?>[0])).join();
+            } finally {
+                // every received message holds permit until it is dispatched
+                if (permits.availablePermits() < capacity) {
+                    logger.warn("Pipeline is stopped before messages are handled, they will be received again");
+                    resetRequested = true;
+                }
+                applyRequests();
+            }
+        }
+    }
+
+    private void applyRequests() {
+        // reset flag is read first: commits dispatched before reset request must be applied before reconnect
+        boolean reset = resetRequested;
+        Commit commit = pendingCommit.getAndSet(null);
+        if (commit != null) {
+            replicationStream.commit(commit.lastReceiveLsn, commit.nextLsn);
+        }
+        if (reset) {
+            resetRequested = false;
+            replicationStream.resetUncommitted();
+            epoch++;
+        }
+    }
+
+    private void decode(ReplicationMessageDecoder decoder) {
+        try {
+            while (true) {
+                // after stop nothing is added to received messages, so decoder exits when they are taken
+                boolean stopped = !running;
+                Item item = stopped ? received.poll() : received.poll(POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+                if (item == null) {
+                    if (stopped) {
+                        break;
+                    }
+                    continue;
+                }
+                try {
+                    item.changes = decoder.decode(item.event.getBuffer());
+                } catch (Exception e) {
+                    item.failure = e;
+                }
+                decoded.set((int) (item.sequence % capacity), item);
+            }
+        } catch (InterruptedException e) {
+            logger.error("Pipeline decoder was interrupted", e);
+        } finally {
+            activeDecoders.decrementAndGet();
+        }
+    }
+
+    private void dispatch() {
+        IdleStrategy idleStrategy = new BackoffIdleStrategy();
+        ChangeSetBatch batch = producer.createBatch();
+        long next = 0;
+        int epoch = 0;
+        int discardedEpoch = -1;
+        try {
+            while (running || next < end) {
+                int index = (int) (next % capacity);
+                Item item = decoded.get(index);
+                if (item == null && !running && activeDecoders.get() == 0) {
+                    // decoders publish item before exit, so it is checked again after they are finished
+                    item = decoded.get(index);
+                    if (item == null) {
+                        break;
+                    }
+                }
+                if (item == null) {
+                    if (batch != null && batch.isReady() && !flush(batch)) {
+                        discardedEpoch = epoch;
+                        resetRequested = true;
+                    }
+                    idleStrategy.idle();
+                    continue;
+                }
+                idleStrategy.reset();
+                decoded.set(index, null);
+                next++;
+                epoch = item.epoch;
+                if (item.epoch > discardedEpoch && !dispatch(item, batch)) {
+                    discardedEpoch = item.epoch;
+                    resetRequested = true;
+                }
+                permits.release();
+            }
+            if (next == end && batch != null && !batch.isEmpty() && epoch > discardedEpoch && !flush(batch)) {
+                resetRequested = true;
+            }
+        } catch (InterruptedException e) {
+            logger.error("Pipeline dispatcher was interrupted", e);
+        } finally {
+            if (batch != null && !batch.isEmpty()) {
+                resetRequested = true;
+            }
+        }
+    }
+
+    private boolean dispatch(Item item, ChangeSetBatch batch) {
+        if (item.failure != null) {
+            logger.debug("Replication message handling throw error", item.failure);
+            if (batch != null) {
+                batch.clear();
+            }
+            return false;
+        }
+        if (batch == null) {
+            return handle(item.event.getReadTime(), item.event.getLastReceiveLSN(), item.changes);
+        }
+        batch.add(item.event, item.changes);
+        return !batch.isReady() || flush(batch);
+    }
+
+    private boolean flush(ChangeSetBatch batch) {
+        ChangeSet changes = batch.toChangeSet();
+        Instant readTime = batch.getReadTime();
+        LogSequenceNumber lastReceiveLsn = batch.getLastReceiveLsn();
+        batch.clear();
+        return handle(readTime, lastReceiveLsn, changes);
+    }
+
+    private boolean handle(Instant readTime, LogSequenceNumber lastReceiveLsn, ChangeSet changes) {
+        try {
+            if (!producer.handle(readTime, changes)) {
+                return false;
+            }
+        } catch (Exception e) {
+            logger.debug("Replication message handling throw error", e);
+            return false;
+        }
+        if (changes.isCommit()) {
+            pendingCommit.set(new Commit(lastReceiveLsn, changes.getNextLsn()));
+        }
+        return true;
+    }
+
+    /**
+     * Runs stage in thread from executor or in own daemon thread, stages run until pipeline stops, so they should not
+     * occupy threads of common pool.
+     */
+    private static CompletableFuture<Void> runAsync(Runnable runnable, Executor executor, String name) {
+        if (executor != null) {
+            return CompletableFuture.runAsync(runnable, executor);
+        }
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        Thread thread = new Thread(() -> {
+            try {
+                runnable.run();
+                future.complete(null);
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        }, name);
+        thread.setDaemon(true);
+        thread.start();
+        return future;
+    }
+
+    private static class Item {
+        private final long sequence;
+        private final int epoch;
+        private final ReplicationEvent event;
+        private ChangeSet changes;
+        private Exception failure;
+
+        private Item(long sequence, int epoch, ReplicationEvent event) {
+            this.sequence = sequence;
+            this.epoch = epoch;
+            this.event = event;
+        }
+    }
+
+    private static class Commit {
+        private final LogSequenceNumber lastReceiveLsn;
+        private final LogSequenceNumber nextLsn;
+
+        private Commit(LogSequenceNumber lastReceiveLsn, LogSequenceNumber nextLsn) {
+            this.lastReceiveLsn = lastReceiveLsn;
+            this.nextLsn = nextLsn;
+        }
+    }
+}
@@ -17,6 +17,8 @@
 
 package com.github.pandaxz.events.replication;
 
+import com.github.pandaxz.events.replication.plugin.OutputPlugin;
+import com.github.pandaxz.events.replication.plugin.Wal2JsonOutputPlugin;
 import org.postgresql.PGConnection;
 import org.postgresql.replication.LogSequenceNumber;
 import org.postgresql.replication.PGReplicationStream;
@@ -35,6 +37,8 @@ import java.sql.Statement;
 import java.time.Clock;
 import java.time.Instant;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -44,7 +48,13 @@ import java.util.concurrent.TimeUnit;
  */
 public class ReplicationStream implements Closeable {
 
-    public static final String OUTPUT_PLUGIN = "wal2json";
+    /**
+     * Default output plugin name.
+     *
+     * @deprecated use {@link #getOutputPlugin()}
+     */
+    @Deprecated
+    public static final String OUTPUT_PLUGIN = Wal2JsonOutputPlugin.NAME;
 
     private static final Logger logger = LoggerFactory.getLogger(ReplicationStream.class);
 
@@ -52,6 +62,11 @@ public class ReplicationStream implements Closeable {
     private ReplicationConnectionSource replicationConnectionSource;
     private DataSource connectionSource;
     private ReplicationStreamSource streamHolder;
+    private OutputPlugin outputPlugin;
+    private ReplicationStreamOptions options;
+    private long feedbackIntervalNanos;
+    private long feedbackLsnDistance;
+    private StatusFeedbackScheduler feedbackScheduler;
 
     /**
      * Instantiates a new Replication stream.
@@ -62,9 +77,59 @@ public class ReplicationStream implements Closeable {
      * @param tables                      the tables
      */
     public ReplicationStream(String slotName, ReplicationConnectionSource replicationConnectionSource, DataSource connectionSource, List<String> tables) {
+        this(slotName, replicationConnectionSource, connectionSource, tables, 1);
+    }
+
+    /**
+     * Instantiates a new Replication stream with provided wal2json format version. With format-version 2 every row
+     * is a separate message: rows are provided as they arrive and lsn is committed only on commit of transaction, so
+     * rows of transaction that was not committed can be received again after reconnect.
+     *
+     * @param slotName                    the slot name
+     * @param replicationConnectionSource the replication connection source
+     * @param connectionSource            the connection source
+     * @param tables                      the tables
+     * @param formatVersion               the wal2json format version, 1 or 2
+     */
+    public ReplicationStream(String slotName, ReplicationConnectionSource replicationConnectionSource, DataSource connectionSource, List<String> tables,
+                             int formatVersion) {
+        this(slotName, replicationConnectionSource, connectionSource, tables, new Wal2JsonOutputPlugin(formatVersion));
+    }
+
+    /**
+     * Instantiates a new Replication stream with provided output plugin.
+     *
+     * @param slotName                    the slot name
+     * @param replicationConnectionSource the replication connection source
+     * @param connectionSource            the connection source
+     * @param tables                      the tables
+     * @param outputPlugin                the output plugin
+     */
+    public ReplicationStream(String slotName, ReplicationConnectionSource replicationConnectionSource, DataSource connectionSource, List<String> tables,
+                             OutputPlugin outputPlugin) {
+        this(slotName, replicationConnectionSource, connectionSource, tables,
+                ReplicationStreamOptions.builder().outputPlugin(outputPlugin).build());
+    }
+
+    /**
+     * Instantiates a new Replication stream with provided options.
+     *
+     * @param slotName                    the slot name
+     * @param replicationConnectionSource the replication connection source
+     * @param connectionSource            the connection source
+     * @param tables                      the tables
+     * @param options                     the options
+     */
+    public ReplicationStream(String slotName, ReplicationConnectionSource replicationConnectionSource, DataSource connectionSource, List<String> tables,
+                             ReplicationStreamOptions options) {
+        Objects.requireNonNull(options, "Options should be not null");
         this.slotName = slotName;
         this.replicationConnectionSource = replicationConnectionSource;
         this.connectionSource = connectionSource;
+        this.options = options;
+        this.outputPlugin = options.getOutputPlugin();
+        this.feedbackIntervalNanos = options.getFeedbackIntervalNanos();
+        this.feedbackLsnDistance = options.getFeedbackLsnDistance();
         this.streamHolder = new ReplicationStreamSource(slotName, replicationConnectionSource, tables);
     }
 
@@ -78,18 +143,14 @@ public class ReplicationStream implements Closeable {
         try {
             ByteBuffer buffer;
             PGReplicationStream stream = streamHolder.getStream();
+            sendDueFeedback(stream);
             buffer = stream.readPending();
             Instant readTime = Instant.now(Clock.systemUTC());
             LogSequenceNumber lastReceiveLSN = stream.getLastReceiveLSN();
             if (buffer == null) {
                 return null;
             }
-
-            int offset = buffer.arrayOffset();
-            byte[] source = buffer.array();
-            int length = source.length - offset;
-            String msg = new String(source, offset, length);
-            return new ReplicationEvent(msg, readTime, lastReceiveLSN);
+            return new ReplicationEvent(buffer, readTime, lastReceiveLSN);
         } catch (Exception e) {
             logger.info("Error when receiving: ", e);
             replicationConnectionSource.invalidateConnection();
@@ -98,7 +159,8 @@ public class ReplicationStream implements Closeable {
     }
 
     /**
-     * Commit received event.
+     * Commit received event. If batched feedback is enabled, status update is sent later, when it is due. Should be
+     * called from thread that receives events, because replication stream is not thread safe.
      *
      * @param lastReceiveLSN the last receive lsn
      * @param nextLsn        the next lsn
@@ -108,6 +170,16 @@ public class ReplicationStream implements Closeable {
         if (nextLsn != null) {
             streamHolder.commitNextLsn(nextLsn);
         }
+        if (feedbackIntervalNanos > 0) {
+            getFeedbackScheduler().processed(lastReceiveLSN);
+            PGReplicationStream stream = streamHolder.getCurrentStream();
+            if (stream == null) {
+                logger.debug("Status update is postponed until reconnect of replication stream");
+                return true;
+            }
+            sendDueFeedback(stream);
+            return true;
+        }
         PGReplicationStream stream;
         try {
             stream = streamHolder.getStream();
@@ -119,6 +191,26 @@ public class ReplicationStream implements Closeable {
         return silentlyUpdateStatus(stream);
     }
 
+    /**
+     * Enable batched status feedback. Committed lsn is sent by thread that receives events when interval is passed
+     * or when it is ahead of the last sent lsn by lsn distance, instead of synchronous status update on every commit.
+     * The last committed lsn is sent on {@link #close()}.
+     *
+     * @param interval    the max interval between status updates
+     * @param unit        the unit of interval
+     * @param lsnDistance the lsn distance in bytes that triggers status update before interval, 0 to use only interval
+     */
+    public void setBatchedFeedback(long interval, TimeUnit unit, long lsnDistance) {
+        if (interval <= 0 || lsnDistance < 0) {
+            throw new IllegalArgumentException("Feedback interval should be positive and lsn distance should be not negative");
+        }
+        this.feedbackIntervalNanos = unit.toNanos(interval);
+        this.feedbackLsnDistance = lsnDistance;
+        if (feedbackScheduler != null) {
+            feedbackScheduler.configure(interval, unit, lsnDistance);
+        }
+    }
+
     /**
      * Reset uncommitted.
      */
@@ -162,7 +254,7 @@ public class ReplicationStream implements Closeable {
         try {
             connection.getReplicationAPI().createReplicationSlot().logical()
                     .withSlotName(slotName)
-                    .withOutputPlugin(OUTPUT_PLUGIN)
+                    .withOutputPlugin(outputPlugin.getName())
                     .make();
         } catch (SQLException e) {
             replicationConnectionSource.invalidateConnection();
@@ -187,6 +279,49 @@ public class ReplicationStream implements Closeable {
         }
     }
 
+    private StatusFeedbackScheduler getFeedbackScheduler() {
+        if (feedbackScheduler == null) {
+            feedbackScheduler = new StatusFeedbackScheduler(feedbackIntervalNanos, TimeUnit.NANOSECONDS, feedbackLsnDistance);
+        }
+        return feedbackScheduler;
+    }
+
+    private void sendDueFeedback(PGReplicationStream stream) {
+        if (feedbackScheduler == null) {
+            return;
+        }
+        long now = System.nanoTime();
+        LogSequenceNumber lsn = feedbackScheduler.due(now);
+        if (lsn != null && sendStatus(stream, lsn)) {
+            feedbackScheduler.sent(lsn, now);
+        }
+    }
+
+    private void flushFeedback() {
+        if (feedbackScheduler == null) {
+            return;
+        }
+        LogSequenceNumber lsn = feedbackScheduler.pending();
+        if (lsn == null) {
+            return;
+        }
+        PGReplicationStream stream = streamHolder.getCurrentStream();
+        if (stream != null && sendStatus(stream, lsn)) {
+            feedbackScheduler.sent(lsn, System.nanoTime());
+        } else {
+            logger.warn("Status update of lsn {} is not sent, replication stream is not connected", lsn);
+        }
+    }
+
+    private boolean sendStatus(PGReplicationStream stream, LogSequenceNumber lsn) {
+        if (stream.isClosed()) {
+            return false;
+        }
+        stream.setAppliedLSN(lsn);
+        stream.setFlushedLSN(lsn);
+        return silentlyUpdateStatus(stream);
+    }
+
     private boolean silentlyUpdateStatus(PGReplicationStream stream) {
         if (stream != null) {
             try {
@@ -255,10 +390,32 @@ public class ReplicationStream implements Closeable {
     }
 
     /**
+     * Gets output plugin.
+     *
+     * @return the output plugin
+     */
+    public OutputPlugin getOutputPlugin() {
+        return outputPlugin;
+    }
+
+    /**
+     * Gets options.
+     *
+     * @return the options
+     */
+    public ReplicationStreamOptions getOptions() {
+        return options;
+    }
+
+    /**
+     * Send the last committed lsn, if batched feedback is enabled, and close stream. Should be called when events are
+     * not received.
+     *
      * @throws IOException
      */
     @Override
     public void close() throws IOException {
+        flushFeedback();
         try {
             streamHolder.closeStream();
         } catch (SQLException e) {
@@ -266,7 +423,7 @@ public class ReplicationStream implements Closeable {
     }
 
     private class ReplicationStreamSource {
-        private PGReplicationStream stream;
+        private volatile PGReplicationStream stream;
         private volatile boolean reconnectRequired = true;
         private List<String> tables;
         private ReplicationConnectionSource replicationConnectionSource;
@@ -302,6 +459,15 @@ public class ReplicationStream implements Closeable {
             return this.stream;
         }
 
+        /**
+         * Gets current stream without reconnect.
+         *
+         * @return the stream or null
+         */
+        public PGReplicationStream getCurrentStream() {
+            return this.reconnectRequired ? null : this.stream;
+        }
+
         private PGReplicationStream createReplicationStream(PGConnection connection) throws SQLException {
             ChainedLogicalStreamBuilder streamBuilder = connection.getReplicationAPI()
                     .replicationStream()
@@ -310,15 +476,14 @@ public class ReplicationStream implements Closeable {
             if (nextLsn != null && !nextLsn.equals(LogSequenceNumber.INVALID_LSN)) {
                 streamBuilder.withStartPosition(nextLsn);
             }
+            for (Map.Entry<String, Object> option : outputPlugin.getSlotOptions(this.tables).entrySet()) {
+                streamBuilder.withSlotOption(option.getKey(), String.valueOf(option.getValue()));
+            }
+            for (Map.Entry<String, Object> option : options.getSlotOptions().entrySet()) {
+                streamBuilder.withSlotOption(option.getKey(), String.valueOf(option.getValue()));
+            }
             return streamBuilder
-                    .withSlotOption("include-xids", true)
-                    .withSlotOption("pretty-print", true)
-                    .withSlotOption("include-timestamp", true)
-                    .withSlotOption("include-types", false)
-                    .withSlotOption("include-lsn", true)
-//                .withSlotOption("include-unchanged-toast", false)
-                    .withSlotOption("add-tables", String.join(", ", this.tables))
-                    .withStatusInterval(15, TimeUnit.SECONDS)
+                    .withStatusInterval((int) options.getStatusIntervalMillis(), TimeUnit.MILLISECONDS)
                     .start();
         }
 
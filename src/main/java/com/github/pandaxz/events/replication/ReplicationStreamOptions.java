@@ -0,0 +1,368 @@
+/*
+ *   Copyright 2019 the original author or authors.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *        https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+
+package com.github.pandaxz.events.replication;
+
+import com.github.pandaxz.events.replication.plugin.OutputPlugin;
+import com.github.pandaxz.events.replication.plugin.Wal2JsonOutputPlugin;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Options of {@link ReplicationStream}: output plugin with its slot options, status interval and status feedback.
+ * By default wal2json format-version 1 with compact output is used.
+ *
+ * @author Uladzislau Belykh
+ */
+public class ReplicationStreamOptions {
+
+    private final OutputPlugin outputPlugin;
+    private final Map<String, Object> slotOptions;
+    private final long statusIntervalMillis;
+    private final long feedbackIntervalNanos;
+    private final long feedbackLsnDistance;
+
+    private ReplicationStreamOptions(Builder builder) {
+        if (builder.outputPlugin != null) {
+            this.outputPlugin = builder.outputPlugin;
+        } else {
+            Wal2JsonOutputPlugin wal2JsonOutputPlugin = new Wal2JsonOutputPlugin(
+                    builder.formatVersion == null ? 1 : builder.formatVersion, builder.wal2JsonOptions);
+            wal2JsonOutputPlugin.setLazyValues(builder.lazyValues);
+            this.outputPlugin = wal2JsonOutputPlugin;
+        }
+        this.slotOptions = Collections.unmodifiableMap(new LinkedHashMap<>(builder.slotOptions));
+        this.statusIntervalMillis = builder.statusIntervalMillis;
+        this.feedbackIntervalNanos = builder.feedbackIntervalNanos;
+        this.feedbackLsnDistance = builder.feedbackLsnDistance;
+    }
+
+    /**
+     * Create builder with default options.
+     *
+     * @return the builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Gets output plugin.
+     *
+     * @return the output plugin
+     */
+    public OutputPlugin getOutputPlugin() {
+        return outputPlugin;
+    }
+
+    /**
+     * Gets additional slot options, they override options of output plugin.
+     *
+     * @return the slot options
+     */
+    public Map<String, Object> getSlotOptions() {
+        return slotOptions;
+    }
+
+    /**
+     * Gets status interval in milliseconds.
+     *
+     * @return the status interval
+     */
+    public long getStatusIntervalMillis() {
+        return statusIntervalMillis;
+    }
+
+    /**
+     * Gets batched feedback interval in nanoseconds, 0 if batched feedback is disabled.
+     *
+     * @return the feedback interval
+     */
+    public long getFeedbackIntervalNanos() {
+        return feedbackIntervalNanos;
+    }
+
+    /**
+     * Gets batched feedback lsn distance.
+     *
+     * @return the feedback lsn distance
+     */
+    public long getFeedbackLsnDistance() {
+        return feedbackLsnDistance;
+    }
+
+    /**
+     * Builder of {@link ReplicationStreamOptions}. Methods for wal2json options can be used only with default output
+     * plugin, see wal2json documentation for meaning of options.
+     */
+    public static class Builder {
+        private OutputPlugin outputPlugin;
+        private Integer formatVersion;
+        private final Map<String, Object> wal2JsonOptions = new LinkedHashMap<>();
+        private boolean lazyValues;
+        private final Map<String, Object> slotOptions = new LinkedHashMap<>();
+        private long statusIntervalMillis = TimeUnit.SECONDS.toMillis(15);
+        private long feedbackIntervalNanos;
+        private long feedbackLsnDistance;
+
+        private Builder() {
+        }
+
+        /**
+         * Use provided output plugin instead of wal2json.
+         *
+         * @param outputPlugin the output plugin
+         * @return the builder
+         */
+        public Builder outputPlugin(OutputPlugin outputPlugin) {
+            this.outputPlugin = Objects.requireNonNull(outputPlugin, "Output plugin should be not null");
+            return this;
+        }
+
+        /**
+         * Set wal2json format-version, 1 by default.
+         *
+         * @param formatVersion the format version, 1 or 2
+         * @return the builder
+         */
+        public Builder formatVersion(int formatVersion) {
+            this.formatVersion = formatVersion;
+            return this;
+        }
+
+        /**
+         * Set wal2json pretty-print, false by default.
+         *
+         * @param prettyPrint the pretty print
+         * @return the builder
+         */
+        public Builder prettyPrint(boolean prettyPrint) {
+            return wal2JsonOption("pretty-print", prettyPrint);
+        }
+
+        /**
+         * Set wal2json include-xids, true by default.
+         *
+         * @param includeXids the include xids
+         * @return the builder
+         */
+        public Builder includeXids(boolean includeXids) {
+            return wal2JsonOption("include-xids", includeXids);
+        }
+
+        /**
+         * Set wal2json include-timestamp, true by default.
+         *
+         * @param includeTimestamp the include timestamp
+         * @return the builder
+         */
+        public Builder includeTimestamp(boolean includeTimestamp) {
+            return wal2JsonOption("include-timestamp", includeTimestamp);
+        }
+
+        /**
+         * Set wal2json include-lsn, true by default. Without lsn committed position is not kept between reconnects.
+         *
+         * @param includeLsn the include lsn
+         * @return the builder
+         */
+        public Builder includeLsn(boolean includeLsn) {
+            return wal2JsonOption("include-lsn", includeLsn);
+        }
+
+        /**
+         * Set wal2json include-types, false by default. With types values of numeric and boolean columns are parsed
+         * once by decoder, see {@link com.github.pandaxz.events.dto.Row#getLong(int)}.
+         *
+         * @param includeTypes the include types
+         * @return the builder
+         */
+        public Builder includeTypes(boolean includeTypes) {
+            return wal2JsonOption("include-types", includeTypes);
+        }
+
+        /**
+         * Set wal2json include-typmod.
+         *
+         * @param includeTypmod the include typmod
+         * @return the builder
+         */
+        public Builder includeTypmod(boolean includeTypmod) {
+            return wal2JsonOption("include-typmod", includeTypmod);
+        }
+
+        /**
+         * Set wal2json include-type-oids.
+         *
+         * @param includeTypeOids the include type oids
+         * @return the builder
+         */
+        public Builder includeTypeOids(boolean includeTypeOids) {
+            return wal2JsonOption("include-type-oids", includeTypeOids);
+        }
+
+        /**
+         * Set wal2json include-not-null.
+         *
+         * @param includeNotNull the include not null
+         * @return the builder
+         */
+        public Builder includeNotNull(boolean includeNotNull) {
+            return wal2JsonOption("include-not-null", includeNotNull);
+        }
+
+        /**
+         * Set wal2json include-schemas.
+         *
+         * @param includeSchemas the include schemas
+         * @return the builder
+         */
+        public Builder includeSchemas(boolean includeSchemas) {
+            return wal2JsonOption("include-schemas", includeSchemas);
+        }
+
+        /**
+         * Set wal2json include-unchanged-toast.
+         *
+         * @param includeUnchangedToast the include unchanged toast
+         * @return the builder
+         */
+        public Builder includeUnchangedToast(boolean includeUnchangedToast) {
+            return wal2JsonOption("include-unchanged-toast", includeUnchangedToast);
+        }
+
+        /**
+         * Set wal2json write-in-chunks. With format-version 1 transaction is sent in several messages, so large
+         * transaction does not need to be kept in memory at once. Its changes are provided as they arrive and lsn is
+         * committed on the last message of transaction.
+         *
+         * @param writeInChunks the write in chunks
+         * @return the builder
+         */
+        public Builder writeInChunks(boolean writeInChunks) {
+            return wal2JsonOption("write-in-chunks", writeInChunks);
+        }
+
+        /**
+         * Set wal2json filter-tables, changes of these tables are not sent.
+         *
+         * @param tables the tables in format schema.table, * can be used as schema or table
+         * @return the builder
+         */
+        public Builder filterTables(String... tables) {
+            return wal2JsonOption("filter-tables", String.join(",", tables));
+        }
+
+        /**
+         * Set wal2json add-tables, only changes of these tables are sent. By default tables of replication stream are
+         * used.
+         *
+         * @param tables the tables in format schema.table, * can be used as schema or table
+         * @return the builder
+         */
+        public Builder addTables(String... tables) {
+            return wal2JsonOption("add-tables", String.join(",", tables));
+        }
+
+        /**
+         * Set wal2json actions, only these actions are sent.
+         *
+         * @param actions the actions: insert, update, delete or truncate
+         * @return the builder
+         */
+        public Builder actions(String... actions) {
+            return wal2JsonOption("actions", String.join(",", actions));
+        }
+
+        /**
+         * Decode text values of rows only on access, see {@link Wal2JsonOutputPlugin#setLazyValues(boolean)}.
+         *
+         * @param lazyValues the lazy values
+         * @return the builder
+         */
+        public Builder lazyValues(boolean lazyValues) {
+            this.lazyValues = lazyValues;
+            return this;
+        }
+
+        /**
+         * Set slot option, it overrides option of output plugin. Can be used with any output plugin.
+         *
+         * @param name  the name
+         * @param value the value
+         * @return the builder
+         */
+        public Builder slotOption(String name, Object value) {
+            this.slotOptions.put(name, value);
+            return this;
+        }
+
+        /**
+         * Set status interval of replication stream, 15 seconds by default.
+         *
+         * @param interval the interval
+         * @param unit     the unit
+         * @return the builder
+         */
+        public Builder statusInterval(long interval, TimeUnit unit) {
+            if (interval <= 0) {
+                throw new IllegalArgumentException("Status interval should be positive");
+            }
+            this.statusIntervalMillis = unit.toMillis(interval);
+            return this;
+        }
+
+        /**
+         * Enable batched status feedback, see {@link ReplicationStream#setBatchedFeedback(long, TimeUnit, long)}.
+         *
+         * @param interval    the max interval between status updates
+         * @param unit        the unit of interval
+         * @param lsnDistance the lsn distance in bytes that triggers status update before interval
+         * @return the builder
+         */
+        public Builder batchedFeedback(long interval, TimeUnit unit, long lsnDistance) {
+            if (interval <= 0 || lsnDistance < 0) {
+                throw new IllegalArgumentException("Feedback interval should be positive and lsn distance should be not negative");
+            }
+            this.feedbackIntervalNanos = unit.toNanos(interval);
+            this.feedbackLsnDistance = lsnDistance;
+            return this;
+        }
+
+        /**
+         * Build options.
+         *
+         * @return the replication stream options
+         */
+        public ReplicationStreamOptions build() {
+            if (this.outputPlugin != null && (this.formatVersion != null || !this.wal2JsonOptions.isEmpty() || this.lazyValues)) {
+                throw new IllegalArgumentException("wal2json options can not be used with provided output plugin");
+            }
+            return new ReplicationStreamOptions(this);
+        }
+
+        private Builder wal2JsonOption(String name, Object value) {
+            this.wal2JsonOptions.put(name, value);
+            return this;
+        }
+    }
+}
@@ -17,20 +17,13 @@
 
 package com.github.pandaxz.events.replication;
 
-import com.github.pandaxz.events.dto.Change;
-import com.github.pandaxz.events.dto.ChangeType;
-import com.github.pandaxz.events.dto.json.ChangeEvent;
-import com.github.pandaxz.events.dto.json.ChangeMessage;
+import com.github.pandaxz.events.dto.ChangeSet;
 import com.github.pandaxz.events.holder.EventHolder;
-import com.google.gson.Gson;
 
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.Set;
 
 /**
- * A {@link ReplicationEventHandler} implementation that convert entity and provide it to {@link EventHolder}.
+ * A {@link ReplicationEventHandler} implementation that provide decoded changes to {@link EventHolder}.
  *
  * @author Uladzislau Belykh
  */
@@ -38,8 +31,6 @@ public class SimpleReplicationEventHandler implements ReplicationEventHandler {
 
     private EventHolder eventsHolder;
 
-    private Gson gson = new Gson();
-
     /**
      * Instantiates a new Simple replication event handler.
      *
@@ -50,34 +41,13 @@ public class SimpleReplicationEventHandler implements ReplicationEventHandler {
     }
 
     @Override
-    public boolean handle(ChangeEvent changeEvent) {
-        return eventsHolder.add(changeEvent.getChanges().stream().map(this::convertToChangeMap).collect(Collectors.toList()));
+    public boolean handle(ChangeSet changeSet) {
+        return eventsHolder.add(changeSet.getChanges());
     }
 
-    private Change<Map<String, String>> convertToChangeMap(ChangeMessage changeMessage) {
-        Change<Map<String, String>> change = new Change<>();
-        change.setTable(changeMessage.getTable());
-        change.setType(ChangeType.valueOf(changeMessage.getKind().toUpperCase()));
-
-        if (changeMessage.getColumnNames() != null && changeMessage.getColumnValues() != null) {
-            change.setNewValus(convertToMap(changeMessage.getColumnNames(), changeMessage.getColumnValues()));
-        }
-
-        if (changeMessage.getOldKeys() != null) {
-            change.setOldValue(convertToMap(changeMessage.getOldKeys().getKeyNames(), changeMessage.getOldKeys().getKeyValues()));
-        }
-        return change;
-    }
-
-    private Map<String, String> convertToMap(List<String> keyNames, List<String> keyValues) {
-        Map<String, String> result = new HashMap<>();
-        for (int i = 0; i < keyNames.size(); i++) {
-            String name = keyNames.get(i);
-            String value = keyValues.get(i);
-            result.put(name, value);
-        }
-
-        return result;
+    @Override
+    public Set<String> getColumns(String table) {
+        return eventsHolder.getColumns(table);
     }
 
     /**
@@ -17,7 +17,7 @@
 
 package com.github.pandaxz.events.replication;
 
-import com.github.pandaxz.events.dto.json.ChangeEvent;
+import com.github.pandaxz.events.dto.ChangeSet;
 
 import java.time.Instant;
 
@@ -44,7 +44,17 @@ public class SimpleReplicationEventProducerStatisticHandler implements Replicati
     }
 
     @Override
-    public void eventIsHandled(ChangeEvent changes, Instant readTime) {
+    public void eventIsReceivedAfterIdle(long idleNanos, long lastPauseNanos) {
+
+    }
+
+    @Override
+    public void eventIsSkipped() {
+
+    }
+
+    @Override
+    public void eventIsHandled(ChangeSet changes, Instant readTime) {
 
     }
 }
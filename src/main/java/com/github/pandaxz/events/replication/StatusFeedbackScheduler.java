@@ -0,0 +1,118 @@
+/*
+ *   Copyright 2019 the original author or authors.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *        https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package com.github.pandaxz.events.replication;
+
+import org.postgresql.replication.LogSequenceNumber;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracks the highest processed lsn and decides when status update should be sent to server. Update is due when
+ * interval is passed since the last update or when processed lsn is ahead of the last sent lsn by provided distance.
+ * Updates are sent by reader thread of replication stream, because {@link org.postgresql.replication.PGReplicationStream}
+ * is not thread safe. Instance is not thread safe, it is used by reader thread only.
+ *
+ * @author Uladzislau Belykh
+ */
+class StatusFeedbackScheduler {
+
+    private long intervalNanos;
+    private long lsnDistance;
+    private long processedLsn;
+    private long sentLsn;
+    private long sentTime;
+
+    /**
+     * Instantiates a new Status feedback scheduler.
+     *
+     * @param interval    the max interval between updates
+     * @param unit        the unit of interval
+     * @param lsnDistance the lsn distance that triggers update before interval is passed, 0 to disable
+     */
+    StatusFeedbackScheduler(long interval, TimeUnit unit, long lsnDistance) {
+        configure(interval, unit, lsnDistance);
+        this.sentTime = System.nanoTime();
+    }
+
+    /**
+     * Change interval and lsn distance, processed and sent lsn are kept.
+     *
+     * @param interval    the max interval between updates
+     * @param unit        the unit of interval
+     * @param lsnDistance the lsn distance that triggers update before interval is passed, 0 to disable
+     */
+    void configure(long interval, TimeUnit unit, long lsnDistance) {
+        if (interval <= 0) {
+            throw new IllegalArgumentException("Feedback interval should be positive");
+        }
+        if (lsnDistance < 0) {
+            throw new IllegalArgumentException("Feedback lsn distance should be not negative");
+        }
+        this.intervalNanos = unit.toNanos(interval);
+        this.lsnDistance = lsnDistance;
+    }
+
+    /**
+     * Mark lsn as processed.
+     *
+     * @param lsn the lsn
+     */
+    void processed(LogSequenceNumber lsn) {
+        this.processedLsn = Math.max(this.processedLsn, lsn.asLong());
+    }
+
+    /**
+     * Gets processed lsn, if its update is due now.
+     *
+     * @param now the current nano time
+     * @return the lsn or null if update is not due
+     */
+    LogSequenceNumber due(long now) {
+        if (!hasPending()) {
+            return null;
+        }
+        if (now - this.sentTime >= this.intervalNanos || (this.lsnDistance > 0 && this.processedLsn - this.sentLsn >= this.lsnDistance)) {
+            return LogSequenceNumber.valueOf(this.processedLsn);
+        }
+        return null;
+    }
+
+    /**
+     * Gets processed lsn that is not sent yet.
+     *
+     * @return the lsn or null if all processed lsn are sent
+     */
+    LogSequenceNumber pending() {
+        return hasPending() ? LogSequenceNumber.valueOf(this.processedLsn) : null;
+    }
+
+    /**
+     * Mark lsn as sent.
+     *
+     * @param lsn the lsn
+     * @param now the nano time of update
+     */
+    void sent(LogSequenceNumber lsn, long now) {
+        this.sentLsn = Math.max(this.sentLsn, lsn.asLong());
+        this.sentTime = now;
+    }
+
+    private boolean hasPending() {
+        return this.processedLsn != 0 && this.processedLsn != this.sentLsn;
+    }
+}
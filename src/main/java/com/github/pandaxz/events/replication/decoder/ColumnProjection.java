@@ -0,0 +1,44 @@
+/*
+ *   Copyright 2019 the original author or authors.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *        https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+
+package com.github.pandaxz.events.replication.decoder;
+
+import java.util.Set;
+
+/**
+ * Columns of table that should be decoded, other columns are skipped by decoder.
+ *
+ * @author Uladzislau Belykh
+ */
+@FunctionalInterface
+public interface ColumnProjection {
+
+    /**
+     * Projection that keeps all columns.
+     */
+    ColumnProjection ALL = table -> null;
+
+    /**
+     * Gets columns of table that should be decoded. It is called for every row, so the same set instance should be
+     * returned while projection is not changed.
+     *
+     * @param table the table
+     * @return the columns or null if all columns are needed
+     */
+    Set<String> getColumns(String table);
+}
@@ -0,0 +1,74 @@
+/*
+ *   Copyright 2019 the original author or authors.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *        https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+
+package com.github.pandaxz.events.replication.decoder;
+
+import com.github.pandaxz.events.dto.ColumnType;
+
+/**
+ * Mapping of PostgreSql types to {@link ColumnType}. Types without primitive form are mapped to text.
+ *
+ * @author Uladzislau Belykh
+ */
+final class ColumnTypes {
+
+    /**
+     * Type names as they are written by wal2json, ascii only.
+     */
+    static final String[] NAMES = {"smallint", "integer", "bigint", "int2", "int4", "int8", "oid",
+            "real", "double precision", "float4", "float8", "boolean", "bool"};
+    private static final ColumnType[] NAME_TYPES = {ColumnType.LONG, ColumnType.LONG, ColumnType.LONG,
+            ColumnType.LONG, ColumnType.LONG, ColumnType.LONG, ColumnType.LONG,
+            ColumnType.DOUBLE, ColumnType.DOUBLE, ColumnType.DOUBLE, ColumnType.DOUBLE, ColumnType.BOOLEAN, ColumnType.BOOLEAN};
+
+    private ColumnTypes() {
+    }
+
+    /**
+     * Gets column type by index of type name.
+     *
+     * @param nameIndex the index in {@link #NAMES} or -1
+     * @return the column type
+     */
+    static ColumnType ofName(int nameIndex) {
+        return nameIndex < 0 ? ColumnType.TEXT : NAME_TYPES[nameIndex];
+    }
+
+    /**
+     * Gets column type by type oid.
+     *
+     * @param oid the type oid
+     * @return the column type
+     */
+    static ColumnType ofOid(int oid) {
+        switch (oid) {
+            case 16:
+                return ColumnType.BOOLEAN;
+            case 20:
+            case 21:
+            case 23:
+            case 26:
+                return ColumnType.LONG;
+            case 700:
+            case 701:
+                return ColumnType.DOUBLE;
+            default:
+                return ColumnType.TEXT;
+        }
+    }
+}
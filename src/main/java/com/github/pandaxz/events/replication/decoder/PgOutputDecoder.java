@@ -0,0 +1,404 @@
+/*
+ *   Copyright 2019 the original author or authors.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *        https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+
+package com.github.pandaxz.events.replication.decoder;
+
+import com.github.pandaxz.events.dto.Change;
+import com.github.pandaxz.events.dto.ChangePool;
+import com.github.pandaxz.events.dto.ChangeSet;
+import com.github.pandaxz.events.dto.ChangeType;
+import com.github.pandaxz.events.dto.ColumnType;
+import com.github.pandaxz.events.dto.Row;
+import com.github.pandaxz.events.dto.RowSchema;
+import com.github.pandaxz.events.dto.ValueSource;
+import org.postgresql.replication.LogSequenceNumber;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Decoder for binary protocol (version 1) of pgoutput plugin. Relation messages are cached by oid with {@link RowSchema}
+ * of all columns and of key columns and used to decode rows of insert, update and delete messages. With typed values
+ * numeric and boolean columns are parsed to primitive form by type oids of relation. With lazy values rows keep
+ * message and decode text values on access. Commit message finishes transaction. Instance is not thread safe and
+ * should be used by one producer.
+ *
+ * @author Uladzislau Belykh
+ */
+public class PgOutputDecoder implements ReplicationMessageDecoder {
+
+    private static final Instant POSTGRES_EPOCH = Instant.parse("2000-01-01T00:00:00Z");
+
+    private final Map<Integer, Relation> relations = new HashMap<>();
+    private final ProjectedSchemas projectedSchemas = new ProjectedSchemas();
+    private ChangePool changePool;
+    private final boolean typedValues;
+    private final boolean lazyValues;
+    private ValueSource source;
+    private byte[] buffer = new byte[256];
+    private boolean[] absent = new boolean[0];
+    private ByteBuffer message;
+    private int position;
+
+    /**
+     * Instantiates a new decoder with text values.
+     */
+    public PgOutputDecoder() {
+        this(false);
+    }
+
+    /**
+     * Instantiates a new decoder.
+     *
+     * @param typedValues parse numeric and boolean values to primitive form
+     */
+    public PgOutputDecoder(boolean typedValues) {
+        this(typedValues, false);
+    }
+
+    /**
+     * Instantiates a new decoder.
+     *
+     * @param typedValues parse numeric and boolean values to primitive form
+     * @param lazyValues  decode text values of rows on access
+     */
+    public PgOutputDecoder(boolean typedValues, boolean lazyValues) {
+        this.typedValues = typedValues;
+        this.lazyValues = lazyValues;
+    }
+
+    @Override
+    public void setColumnProjection(ColumnProjection columnProjection) {
+        this.projectedSchemas.setColumnProjection(columnProjection);
+    }
+
+    @Override
+    public void setChangePool(ChangePool changePool) {
+        this.changePool = changePool;
+    }
+
+    @Override
+    public ChangeSet decode(ByteBuffer message) {
+        this.message = message;
+        this.position = message.position();
+        this.source = this.lazyValues ? new MessageValueSource(message) : null;
+        ChangeSet changeSet = new ChangeSet();
+        changeSet.setChanges(Collections.emptyList());
+        byte type = readByte();
+        switch (type) {
+            case 'B':
+                break;
+            case 'C':
+                readByte();
+                readLong();
+                changeSet.setNextLsn(LogSequenceNumber.valueOf(readLong()));
+                changeSet.setCommitTime(POSTGRES_EPOCH.plus(readLong(), ChronoUnit.MICROS).toString());
+                changeSet.setCommit(true);
+                break;
+            case 'R':
+                readRelation();
+                break;
+            case 'I':
+                changeSet.setChanges(Collections.singletonList(withSize(readInsert())));
+                break;
+            case 'U':
+                changeSet.setChanges(Collections.singletonList(withSize(readUpdate())));
+                break;
+            case 'D':
+                changeSet.setChanges(Collections.singletonList(withSize(readDelete())));
+                break;
+            default:
+                // origin, type and truncate messages are not provided as changes
+                break;
+        }
+        if (this.lazyValues) {
+            ReplicationMessageDecoder.chargeMessage(changeSet, message);
+        }
+        this.message = null;
+        this.source = null;
+        return changeSet;
+    }
+
+    private void readRelation() {
+        int oid = readInt();
+        readString();
+        String name = readString();
+        readByte();
+        int columnCount = readShort();
+        String[] columns = new String[columnCount];
+        boolean[] keys = new boolean[columnCount];
+        ColumnType[] types = this.typedValues ? new ColumnType[columnCount] : null;
+        for (int i = 0; i < columnCount; i++) {
+            keys[i] = (readByte() & 1) != 0;
+            columns[i] = readString();
+            int typeOid = readInt();
+            readInt();
+            if (types != null) {
+                types[i] = ColumnTypes.ofOid(typeOid);
+            }
+        }
+        relations.put(oid, new Relation(name, columns, keys, types));
+    }
+
+    private Change<Map<String, String>> readInsert() {
+        Relation relation = getRelation(readInt());
+        expect('N');
+        return createChange(ChangeType.INSERT, relation.name, null, readTuple(relation, false));
+    }
+
+    private Change<Map<String, String>> readUpdate() {
+        Relation relation = getRelation(readInt());
+        Map<String, String> oldValue = null;
+        byte type = readByte();
+        if (type == 'K' || type == 'O') {
+            oldValue = readTuple(relation, type == 'K');
+            type = readByte();
+        }
+        if (type != 'N') {
+            throw new IllegalArgumentException("Unexpected tuple type '" + (char) type + "' in pgoutput update message");
+        }
+        return createChange(ChangeType.UPDATE, relation.name, oldValue, readTuple(relation, false));
+    }
+
+    private Change<Map<String, String>> readDelete() {
+        Relation relation = getRelation(readInt());
+        byte type = readByte();
+        if (type != 'K' && type != 'O') {
+            throw new IllegalArgumentException("Unexpected tuple type '" + (char) type + "' in pgoutput delete message");
+        }
+        return createChange(ChangeType.DELETE, relation.name, readTuple(relation, type == 'K'), null);
+    }
+
+    /**
+     * Read tuple data. Unchanged toasted values are absent in row, key tuple contains only key columns.
+     */
+    private Row readTuple(Relation relation, boolean keysOnly) {
+        int columnCount = readShort();
+        if (columnCount > relation.keyIndexes.length) {
+            throw new IllegalArgumentException("Tuple of relation " + relation.name + " has more columns than relation message");
+        }
+        if (this.absent.length < relation.keyIndexes.length) {
+            this.absent = new boolean[relation.keyIndexes.length];
+        }
+        RowSchema schema = keysOnly ? relation.keySchema : relation.schema;
+        ProjectedSchemas.Projection projection = this.projectedSchemas.get(schema);
+        if (projection != null) {
+            schema = projection.getSchema();
+        }
+        String[] values = this.source == null ? newValues(schema.size()) : null;
+        int[] bounds = this.source == null ? null : new int[schema.size() * 2];
+        if (bounds != null) {
+            Arrays.fill(bounds, -1);
+        }
+        boolean hasAbsent = columnCount < relation.keyIndexes.length;
+        for (int i = 0; i < columnCount; i++) {
+            int index = targetIndex(relation, keysOnly, projection, i);
+            byte kind = readByte();
+            String value;
+            switch (kind) {
+                case 'n':
+                    value = null;
+                    break;
+                case 'u':
+                    hasAbsent = true;
+                    this.absent[i] = true;
+                    continue;
+                case 't':
+                    int length = readInt();
+                    if (bounds != null || index < 0) {
+                        if (index >= 0) {
+                            bounds[index * 2] = position;
+                            bounds[index * 2 + 1] = position + length;
+                        }
+                        position += length;
+                        continue;
+                    }
+                    value = readText(length);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unexpected column kind '" + (char) kind + "' in pgoutput tuple");
+            }
+            if (index >= 0 && values != null) {
+                values[index] = value;
+            }
+        }
+        Row row = bounds == null ? new Row(schema, values) : new Row(schema, this.source, bounds);
+        if (hasAbsent) {
+            markAbsent(row, relation, keysOnly, projection, columnCount);
+        }
+        return row;
+    }
+
+    /**
+     * Columns of unchanged toasted values and columns that are not in tuple are absent in row.
+     */
+    private void markAbsent(Row row, Relation relation, boolean keysOnly, ProjectedSchemas.Projection projection, int columnCount) {
+        for (int i = 0; i < relation.keyIndexes.length; i++) {
+            if (i < columnCount && !this.absent[i]) {
+                continue;
+            }
+            this.absent[i] = false;
+            int index = targetIndex(relation, keysOnly, projection, i);
+            if (index >= 0) {
+                row.markAbsent(index);
+            }
+        }
+    }
+
+    /**
+     * Gets index of tuple column in row or -1 if column is not in row.
+     */
+    private static int targetIndex(Relation relation, boolean keysOnly, ProjectedSchemas.Projection projection, int column) {
+        int index = keysOnly ? relation.keyIndexes[column] : column;
+        if (index >= 0 && projection != null) {
+            index = projection.indexOf(index);
+        }
+        return index;
+    }
+
+    private Relation getRelation(int oid) {
+        Relation relation = relations.get(oid);
+        if (relation == null) {
+            throw new IllegalStateException("Relation message for oid " + oid + " was not received");
+        }
+        return relation;
+    }
+
+    private void expect(char expected) {
+        byte type = readByte();
+        if (type != expected) {
+            throw new IllegalArgumentException("Expected '" + expected + "' but was '" + (char) type + "' in pgoutput message");
+        }
+    }
+
+    private byte readByte() {
+        return message.get(position++);
+    }
+
+    private int readShort() {
+        int value = message.getShort(position) & 0xFFFF;
+        position += 2;
+        return value;
+    }
+
+    private int readInt() {
+        int value = message.getInt(position);
+        position += 4;
+        return value;
+    }
+
+    private long readLong() {
+        long value = message.getLong(position);
+        position += 8;
+        return value;
+    }
+
+    private String readString() {
+        int start = position;
+        while (message.get(position) != 0) {
+            position++;
+        }
+        String value = decode(start, position - start);
+        position++;
+        return value;
+    }
+
+    private String readText(int length) {
+        String value = decode(position, length);
+        position += length;
+        return value;
+    }
+
+    private String decode(int start, int length) {
+        if (buffer.length < length) {
+            buffer = new byte[Math.max(length, buffer.length * 2)];
+        }
+        for (int i = 0; i < length; i++) {
+            buffer[i] = message.get(start + i);
+        }
+        return new String(buffer, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private Change<Map<String, String>> withSize(Change<Map<String, String>> change) {
+        change.setSize(ReplicationMessageDecoder.estimateSize(change, this.message.remaining()));
+        return change;
+    }
+
+    private Change<Map<String, String>> createChange(ChangeType type, String table, Map<String, String> oldValue,
+                                                     Map<String, String> newValue) {
+        if (this.changePool == null) {
+            return new Change<>(type, table, oldValue, newValue);
+        }
+        return this.changePool.acquire(type, table, oldValue, newValue);
+    }
+
+    private String[] newValues(int size) {
+        return this.changePool == null ? new String[size] : this.changePool.acquireValues(size);
+    }
+
+    private static class MessageValueSource implements ValueSource {
+        private final ByteBuffer message;
+
+        private MessageValueSource(ByteBuffer message) {
+            this.message = message;
+        }
+
+        @Override
+        public String decode(int start, int end) {
+            byte[] bytes = new byte[end - start];
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = message.get(start + i);
+            }
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+
+    private static class Relation {
+        private final String name;
+        private final RowSchema schema;
+        private final RowSchema keySchema;
+        private final int[] keyIndexes;
+
+        private Relation(String name, String[] columns, boolean[] keys, ColumnType[] types) {
+            this.name = name;
+            this.schema = new RowSchema(name, columns, types);
+            this.keyIndexes = new int[columns.length];
+            int keyCount = 0;
+            for (int i = 0; i < columns.length; i++) {
+                this.keyIndexes[i] = keys[i] ? keyCount++ : -1;
+            }
+            String[] keyColumns = new String[keyCount];
+            ColumnType[] keyTypes = types == null ? null : new ColumnType[keyCount];
+            for (int i = 0; i < columns.length; i++) {
+                if (keys[i]) {
+                    keyColumns[this.keyIndexes[i]] = columns[i];
+                    if (keyTypes != null) {
+                        keyTypes[this.keyIndexes[i]] = types[i];
+                    }
+                }
+            }
+            this.keySchema = new RowSchema(name, keyColumns, keyTypes);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ *   Copyright 2019 the original author or authors.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *        https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+
+package com.github.pandaxz.events.replication.decoder;
+
+import com.github.pandaxz.events.dto.ColumnType;
+import com.github.pandaxz.events.dto.RowSchema;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Cache of projected schemas of decoder. Projected schema is rebuilt only when table schema or set of projected
+ * columns is changed. Projections are kept per table in few slots and found by columns of schema, so schemas that are
+ * rebuilt by decoder with the same columns reuse projection and cache does not grow. Instance is not thread safe.
+ *
+ * @author Uladzislau Belykh
+ */
+class ProjectedSchemas {
+    private static final int TABLE_SLOTS = 4;
+
+    private final Map<String, Slots> projections = new HashMap<>();
+    private ColumnProjection columnProjection = ColumnProjection.ALL;
+
+    void setColumnProjection(ColumnProjection columnProjection) {
+        this.columnProjection = columnProjection == null ? ColumnProjection.ALL : columnProjection;
+        this.projections.clear();
+    }
+
+    /**
+     * Gets projection of schema.
+     *
+     * @param schema the full schema
+     * @return the projection or null if all columns are kept
+     */
+    Projection get(RowSchema schema) {
+        Set<String> columns = this.columnProjection.getColumns(schema.getTable());
+        if (columns == null) {
+            return null;
+        }
+        Slots slots = this.projections.computeIfAbsent(schema.getTable(), table -> new Slots());
+        Projection projection = slots.find(schema);
+        if (projection == null || projection.columns != columns) {
+            projection = new Projection(schema, columns);
+            slots.put(projection);
+        }
+        return projection;
+    }
+
+    /**
+     * Projections of table schemas, the oldest projection is replaced when all slots are used.
+     */
+    private static class Slots {
+        private final Projection[] projections = new Projection[TABLE_SLOTS];
+        private int next;
+
+        private Projection find(RowSchema schema) {
+            for (Projection projection : this.projections) {
+                if (projection != null && projection.source == schema) {
+                    return projection;
+                }
+            }
+            for (Projection projection : this.projections) {
+                if (projection != null && sameColumns(projection.source, schema)) {
+                    projection.source = schema;
+                    return projection;
+                }
+            }
+            return null;
+        }
+
+        private void put(Projection projection) {
+            for (int i = 0; i < this.projections.length; i++) {
+                if (this.projections[i] != null && this.projections[i].source == projection.source) {
+                    this.projections[i] = projection;
+                    return;
+                }
+            }
+            this.projections[this.next] = projection;
+            this.next = (this.next + 1) % this.projections.length;
+        }
+
+        private static boolean sameColumns(RowSchema first, RowSchema second) {
+            if (first.size() != second.size()) {
+                return false;
+            }
+            for (int i = 0; i < first.size(); i++) {
+                if (!first.getName(i).equals(second.getName(i)) || first.getType(i) != second.getType(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Projected schema and mapping of full schema indexes to projected indexes.
+     */
+    static class Projection {
+        private final Set<String> columns;
+        private RowSchema source;
+        private final RowSchema schema;
+        private final int[] indexes;
+
+        private Projection(RowSchema source, Set<String> columns) {
+            this.columns = columns;
+            this.source = source;
+            this.indexes = new int[source.size()];
+            int count = 0;
+            for (int i = 0; i < source.size(); i++) {
+                this.indexes[i] = columns.contains(source.getName(i)) ? count++ : -1;
+            }
+            String[] names = new String[count];
+            ColumnType[] types = new ColumnType[count];
+            for (int i = 0; i < source.size(); i++) {
+                if (this.indexes[i] >= 0) {
+                    names[this.indexes[i]] = source.getName(i);
+                    types[this.indexes[i]] = source.getType(i);
+                }
+            }
+            this.schema = new RowSchema(source.getTable(), names, types);
+        }
+
+        RowSchema getSchema() {
+            return schema;
+        }
+
+        /**
+         * Gets index of column in projected schema.
+         *
+         * @param index the index in full schema
+         * @return the index or -1 if column is skipped
+         */
+        int indexOf(int index) {
+            return indexes[index];
+        }
+    }
+}
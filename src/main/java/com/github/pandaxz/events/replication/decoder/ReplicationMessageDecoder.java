@@ -0,0 +1,109 @@
+/*
+ *   Copyright 2019 the original author or authors.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *        https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+
+package com.github.pandaxz.events.replication.decoder;
+
+import com.github.pandaxz.events.dto.Change;
+import com.github.pandaxz.events.dto.ChangePool;
+import com.github.pandaxz.events.dto.ChangeSet;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Decoder of messages received from replication stream.
+ *
+ * @author Uladzislau Belykh
+ */
+public interface ReplicationMessageDecoder {
+
+    /**
+     * Estimated size of change object with its rows.
+     */
+    long CHANGE_OVERHEAD = 96;
+
+    /**
+     * Estimated size of string object and its array slot in row, without characters.
+     */
+    long VALUE_OVERHEAD = 48;
+
+    /**
+     * Decode message from bytes between position and limit of buffer. Buffer position is not changed.
+     * Messages without changes (begin of transaction, empty transaction and etc.) produce empty change set.
+     *
+     * @param message the message
+     * @return the change set, never null
+     */
+    ChangeSet decode(ByteBuffer message);
+
+    /**
+     * Sets column projection, rows are decoded only with projected columns. By default all columns are decoded.
+     *
+     * @param columnProjection the column projection
+     */
+    default void setColumnProjection(ColumnProjection columnProjection) {
+    }
+
+    /**
+     * Sets pool of changes, decoded changes and value arrays of rows are acquired from pool. By default changes are
+     * not pooled.
+     *
+     * @param changePool the change pool
+     */
+    default void setChangePool(ChangePool changePool) {
+    }
+
+    /**
+     * Estimates size of change in memory by bytes of message that encode it: decoded values take about as many bytes
+     * as their encoded text, overhead of objects is added for every value.
+     *
+     * @param change       the change
+     * @param encodedBytes the count of message bytes that encode change
+     * @return the size in bytes
+     */
+    static long estimateSize(Change<Map<String, String>> change, long encodedBytes) {
+        int valueCount = 0;
+        if (change.getOldValue() != null) {
+            valueCount += change.getOldValue().size();
+        }
+        if (change.getNewValue() != null) {
+            valueCount += change.getNewValue().size();
+        }
+        return CHANGE_OVERHEAD + encodedBytes + valueCount * VALUE_OVERHEAD;
+    }
+
+    /**
+     * Adds message to size of changes decoded with lazy values. Lazy rows keep the whole message buffer until the last
+     * of them is released, so buffer is charged to changes of message in equal parts and byte limits cover it.
+     *
+     * @param changeSet the change set decoded from message
+     * @param message   the message
+     */
+    static void chargeMessage(ChangeSet changeSet, ByteBuffer message) {
+        List<Change<Map<String, String>>> changes = changeSet.getChanges();
+        if (changes == null || changes.isEmpty()) {
+            return;
+        }
+        long share = message.capacity() / changes.size();
+        for (int i = 0; i < changes.size(); i++) {
+            Change<Map<String, String>> change = changes.get(i);
+            change.setSize(change.getSize() + share);
+        }
+    }
+}
@@ -0,0 +1,460 @@
+/*
+ *   Copyright 2019 the original author or authors.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *        https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+
+package com.github.pandaxz.events.replication.decoder;
+
+import com.github.pandaxz.events.dto.Change;
+import com.github.pandaxz.events.dto.ChangePool;
+import com.github.pandaxz.events.dto.ChangeSet;
+import com.github.pandaxz.events.dto.ChangeType;
+import com.github.pandaxz.events.dto.ColumnType;
+import com.github.pandaxz.events.dto.Row;
+import com.github.pandaxz.events.dto.RowSchema;
+import com.github.pandaxz.events.dto.ValueSource;
+import org.postgresql.replication.LogSequenceNumber;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streaming decoder for wal2json format-version 1. Goes from message to {@link Change} objects in one pass without
+ * intermediate dto. Values are provided as {@link Row}s, column names are compared with cached {@link RowSchema} of
+ * table and new names are decoded only when table columns are changed. With include-types values of numeric and boolean
+ * columns are parsed to primitive form. With lazy values rows keep bounds of json strings and unescape them on access,
+ * without write-in-chunks all rows of transaction share one message, so it is kept until the last of them is released.
+ * Instance is not thread safe and should be used by one producer.
+ * <p>
+ * With write-in-chunks transaction is sent as header, one message per change and trailer. Header gives nextlsn and
+ * timestamp, changes are provided as they arrive and trailer completes transaction.
+ *
+ * @author Uladzislau Belykh
+ */
+public class Wal2JsonDecoder implements ReplicationMessageDecoder {
+
+    private static final String[] TRANSACTION_NAMES = {"nextlsn", "timestamp", "change"};
+    private static final int NEXT_LSN = 0;
+    private static final int TIMESTAMP = 1;
+    private static final int CHANGE = 2;
+
+    private static final String[] CHANGE_NAMES = {"kind", "table", "columnnames", "columntypes", "columnvalues", "oldkeys"};
+    private static final int KIND = 0;
+    private static final int TABLE = 1;
+    private static final int COLUMN_NAMES = 2;
+    private static final int COLUMN_TYPES = 3;
+    private static final int COLUMN_VALUES = 4;
+    private static final int OLD_KEYS = 5;
+
+    private static final String[] OLD_KEYS_NAMES = {"keynames", "keytypes", "keyvalues"};
+    private static final int KEY_NAMES = 0;
+    private static final int KEY_TYPES = 1;
+    private static final int KEY_VALUES = 2;
+
+    private static final byte[] EMPTY_CHANGE_TAIL = {'}', ']', '[', ':'};
+    private static final byte[] CHANGE_NAME = "\"change\"".getBytes(StandardCharsets.US_ASCII);
+
+    private static final String[] KINDS = {"insert", "update", "delete"};
+    private static final ChangeType[] KIND_TYPES = {ChangeType.INSERT, ChangeType.UPDATE, ChangeType.DELETE};
+
+    private final Wal2JsonReader reader = new Wal2JsonReader();
+    private final List<String> names = new ArrayList<>();
+    private final Map<String, RowSchema> schemas = new HashMap<>();
+    private final Map<String, RowSchema> keySchemas = new HashMap<>();
+    private final ProjectedSchemas projectedSchemas = new ProjectedSchemas();
+    private ChangePool changePool;
+    private final boolean writeInChunks;
+    private final boolean lazyValues;
+    private ValueSource source;
+    private LogSequenceNumber chunkNextLsn;
+    private String chunkCommitTime;
+
+    /**
+     * Instantiates a new decoder of whole transaction messages.
+     */
+    public Wal2JsonDecoder() {
+        this(false);
+    }
+
+    /**
+     * Instantiates a new decoder.
+     *
+     * @param writeInChunks is transaction written in chunks
+     */
+    public Wal2JsonDecoder(boolean writeInChunks) {
+        this(writeInChunks, false);
+    }
+
+    /**
+     * Instantiates a new decoder.
+     *
+     * @param writeInChunks is transaction written in chunks
+     * @param lazyValues    decode text values of rows on access
+     */
+    public Wal2JsonDecoder(boolean writeInChunks, boolean lazyValues) {
+        this.writeInChunks = writeInChunks;
+        this.lazyValues = lazyValues;
+    }
+
+    /**
+     * Decode wal2json message.
+     *
+     * @param message the message
+     * @return the change set
+     */
+    public ChangeSet decode(String message) {
+        return decode(ByteBuffer.wrap(message.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Override
+    public void setColumnProjection(ColumnProjection columnProjection) {
+        this.projectedSchemas.setColumnProjection(columnProjection);
+    }
+
+    @Override
+    public void setChangePool(ChangePool changePool) {
+        this.changePool = changePool;
+    }
+
+    @Override
+    public ChangeSet decode(ByteBuffer message) {
+        this.source = this.lazyValues ? new Wal2JsonValueSource(message) : null;
+        try {
+            ChangeSet changeSet = this.writeInChunks ? decodeChunk(message) : decodeTransaction(message);
+            if (this.lazyValues) {
+                ReplicationMessageDecoder.chargeMessage(changeSet, message);
+            }
+            return changeSet;
+        } finally {
+            this.source = null;
+        }
+    }
+
+    private ChangeSet decodeTransaction(ByteBuffer message) {
+        ChangeSet changeSet = new ChangeSet();
+        changeSet.setCommit(true);
+        if (isEmptyTransaction(message)) {
+            changeSet.setChanges(Collections.emptyList());
+            return changeSet;
+        }
+        this.reader.reset(message);
+        List<Change<Map<String, String>>> changes = new ArrayList<>();
+        this.reader.beginObject();
+        while (this.reader.hasNextMember()) {
+            switch (this.reader.nextName(TRANSACTION_NAMES)) {
+                case NEXT_LSN:
+                    changeSet.setNextLsn(LogSequenceNumber.valueOf(this.reader.nextString()));
+                    break;
+                case TIMESTAMP:
+                    changeSet.setCommitTime(this.reader.nextString());
+                    break;
+                case CHANGE:
+                    this.reader.beginArray();
+                    while (this.reader.hasNextElement()) {
+                        changes.add(readChange());
+                    }
+                    break;
+                default:
+                    this.reader.skipValue();
+            }
+        }
+        changeSet.setChanges(changes);
+        return changeSet;
+    }
+
+    private ChangeSet decodeChunk(ByteBuffer message) {
+        ChangeSet changeSet = new ChangeSet();
+        changeSet.setChanges(Collections.emptyList());
+        int last = skipWhitespaceBackward(message, message.position(), message.limit() - 1);
+        this.reader.reset(message);
+        if (last >= message.position() && message.get(last) == '[') {
+            readChunkHeader();
+            return changeSet;
+        }
+        if (!this.reader.hasNextElement()) {
+            changeSet.setCommit(true);
+            changeSet.setNextLsn(this.chunkNextLsn);
+            changeSet.setCommitTime(this.chunkCommitTime);
+            this.chunkNextLsn = null;
+            this.chunkCommitTime = null;
+            return changeSet;
+        }
+        changeSet.setChanges(Collections.singletonList(readChange()));
+        return changeSet;
+    }
+
+    /**
+     * Header is an unclosed transaction object that ends with opening of change array.
+     */
+    private void readChunkHeader() {
+        this.chunkNextLsn = null;
+        this.chunkCommitTime = null;
+        this.reader.beginObject();
+        while (this.reader.hasNextMember()) {
+            switch (this.reader.nextName(TRANSACTION_NAMES)) {
+                case NEXT_LSN:
+                    this.chunkNextLsn = LogSequenceNumber.valueOf(this.reader.nextString());
+                    break;
+                case TIMESTAMP:
+                    this.chunkCommitTime = this.reader.nextString();
+                    break;
+                case CHANGE:
+                    this.reader.beginArray();
+                    return;
+                default:
+                    this.reader.skipValue();
+            }
+        }
+    }
+
+    /**
+     * Check that message is a transaction without changes, e.g. transaction on tables that are not replicated or
+     * heartbeat. wal2json writes change array last, so only the tail of message is inspected and check takes the
+     * same time for any message size.
+     *
+     * @param message the message
+     * @return true, if transaction is empty
+     */
+    public boolean isEmptyTransaction(ByteBuffer message) {
+        int start = message.position();
+        int position = message.limit() - 1;
+        for (byte expected : EMPTY_CHANGE_TAIL) {
+            position = skipWhitespaceBackward(message, start, position);
+            if (position < start || message.get(position) != expected) {
+                return false;
+            }
+            position--;
+        }
+        position = skipWhitespaceBackward(message, start, position);
+        int nameStart = position - CHANGE_NAME.length + 1;
+        if (nameStart < start) {
+            return false;
+        }
+        for (int i = 0; i < CHANGE_NAME.length; i++) {
+            if (message.get(nameStart + i) != CHANGE_NAME[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int skipWhitespaceBackward(ByteBuffer message, int start, int position) {
+        while (position >= start) {
+            byte c = message.get(position);
+            if (c != ' ' && c != '\n' && c != '\r' && c != '\t') {
+                break;
+            }
+            position--;
+        }
+        return position;
+    }
+
+    private Change<Map<String, String>> readChange() {
+        int start = this.reader.position();
+        Change<Map<String, String>> change = createChange(null, null, null, null);
+        RowSchema schema = null;
+        this.reader.beginObject();
+        while (this.reader.hasNextMember()) {
+            switch (this.reader.nextName(CHANGE_NAMES)) {
+                case KIND:
+                    change.setType(readKind());
+                    break;
+                case TABLE:
+                    change.setTable(this.reader.nextString());
+                    break;
+                case COLUMN_NAMES:
+                    schema = readSchema(this.schemas, change.getTable());
+                    break;
+                case COLUMN_TYPES:
+                    schema = readTypes(this.schemas, schema);
+                    break;
+                case COLUMN_VALUES:
+                    change.setNewValus(readRow(schema));
+                    break;
+                case OLD_KEYS:
+                    change.setOldValue(readOldKeys(change.getTable()));
+                    break;
+                default:
+                    this.reader.skipValue();
+            }
+        }
+        change.setSize(ReplicationMessageDecoder.estimateSize(change, this.reader.position() - start));
+        return change;
+    }
+
+    private ChangeType readKind() {
+        int kind = this.reader.nextStringMatch(KINDS);
+        if (kind < 0) {
+            throw new IllegalArgumentException("Unsupported wal2json change kind");
+        }
+        return KIND_TYPES[kind];
+    }
+
+    private Map<String, String> readOldKeys(String table) {
+        RowSchema schema = null;
+        Map<String, String> oldKeys = null;
+        this.reader.beginObject();
+        while (this.reader.hasNextMember()) {
+            switch (this.reader.nextName(OLD_KEYS_NAMES)) {
+                case KEY_NAMES:
+                    schema = readSchema(this.keySchemas, table);
+                    break;
+                case KEY_TYPES:
+                    schema = readTypes(this.keySchemas, schema);
+                    break;
+                case KEY_VALUES:
+                    oldKeys = readRow(schema);
+                    break;
+                default:
+                    this.reader.skipValue();
+            }
+        }
+        return oldKeys;
+    }
+
+    /**
+     * Read column names and return cached schema of table if names are the same, otherwise cache new schema.
+     */
+    private RowSchema readSchema(Map<String, RowSchema> cache, String table) {
+        RowSchema cached = table == null ? null : cache.get(table);
+        boolean matches = cached != null;
+        int count = 0;
+        this.names.clear();
+        this.reader.beginArray();
+        while (this.reader.hasNextElement()) {
+            if (matches) {
+                if (count < cached.size() && this.reader.nextStringEquals(cached.getName(count))) {
+                    count++;
+                    continue;
+                }
+                matches = false;
+                addNames(cached, count);
+            }
+            this.names.add(this.reader.nextString());
+            count++;
+        }
+        if (matches && count == cached.size()) {
+            return cached;
+        }
+        if (matches) {
+            addNames(cached, count);
+        }
+        RowSchema schema = new RowSchema(table, this.names.toArray(new String[0]));
+        if (table != null) {
+            cache.put(table, schema);
+        }
+        return schema;
+    }
+
+    /**
+     * Read column types and return the same schema if types are not changed, otherwise cache schema with new types.
+     */
+    private RowSchema readTypes(Map<String, RowSchema> cache, RowSchema schema) {
+        if (schema == null) {
+            throw new IllegalArgumentException("wal2json message has types without names");
+        }
+        ColumnType[] types = null;
+        int index = 0;
+        this.reader.beginArray();
+        while (this.reader.hasNextElement()) {
+            ColumnType type = ColumnTypes.ofName(this.reader.nextStringMatch(ColumnTypes.NAMES));
+            if (index >= schema.size()) {
+                throw new IllegalArgumentException("wal2json message has more types than names");
+            }
+            if (types == null && type != schema.getType(index)) {
+                types = new ColumnType[schema.size()];
+                for (int i = 0; i < index; i++) {
+                    types[i] = schema.getType(i);
+                }
+            }
+            if (types != null) {
+                types[index] = type;
+            }
+            index++;
+        }
+        if (types == null) {
+            return schema;
+        }
+        for (int i = index; i < types.length; i++) {
+            types[i] = ColumnType.TEXT;
+        }
+        this.names.clear();
+        addNames(schema, schema.size());
+        RowSchema typed = new RowSchema(schema.getTable(), this.names.toArray(new String[0]), types);
+        if (schema.getTable() != null) {
+            cache.put(schema.getTable(), typed);
+        }
+        return typed;
+    }
+
+    private void addNames(RowSchema schema, int count) {
+        for (int i = 0; i < count; i++) {
+            this.names.add(schema.getName(i));
+        }
+    }
+
+    /**
+     * Values are put straight into row, wal2json always writes names before values.
+     */
+    private Row readRow(RowSchema schema) {
+        if (schema == null) {
+            throw new IllegalArgumentException("wal2json message has values without names");
+        }
+        ProjectedSchemas.Projection projection = this.projectedSchemas.get(schema);
+        RowSchema target = projection == null ? schema : projection.getSchema();
+        String[] values = this.source == null ? newValues(target.size()) : null;
+        int[] bounds = this.source == null ? null : new int[target.size() * 2];
+        int index = 0;
+        this.reader.beginArray();
+        while (this.reader.hasNextElement()) {
+            if (index >= schema.size()) {
+                throw new IllegalArgumentException("wal2json message has more values than names");
+            }
+            int targetIndex = projection == null ? index : projection.indexOf(index);
+            index++;
+            if (targetIndex < 0) {
+                this.reader.skipValue();
+            } else if (values != null) {
+                values[targetIndex] = this.reader.nextValue();
+            } else {
+                long valueBounds = this.reader.nextValueBounds();
+                bounds[targetIndex * 2] = valueBounds < 0 ? -1 : (int) (valueBounds >>> 32);
+                bounds[targetIndex * 2 + 1] = (int) valueBounds;
+            }
+        }
+        if (index != schema.size()) {
+            throw new IllegalArgumentException("wal2json message has less values than names");
+        }
+        return values != null ? new Row(target, values) : new Row(target, this.source, bounds);
+    }
+
+    private Change<Map<String, String>> createChange(ChangeType type, String table, Map<String, String> oldValue,
+                                                     Map<String, String> newValue) {
+        if (this.changePool == null) {
+            return new Change<>(type, table, oldValue, newValue);
+        }
+        return this.changePool.acquire(type, table, oldValue, newValue);
+    }
+
+    private String[] newValues(int size) {
+        return this.changePool == null ? new String[size] : this.changePool.acquireValues(size);
+    }
+}
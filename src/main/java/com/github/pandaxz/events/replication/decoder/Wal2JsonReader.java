@@ -0,0 +1,404 @@
+/*
+ *   Copyright 2019 the original author or authors.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *        https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+
+package com.github.pandaxz.events.replication.decoder;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Forward-only cursor over UTF-8 bytes of wal2json output. It reads exactly the subset of json that wal2json writes
+ * and never builds an intermediate tree. Only absolute reads are used, so position of the buffer is not changed.
+ *
+ * @author Uladzislau Belykh
+ */
+class Wal2JsonReader {
+
+    private static final String[] NO_NAMES = new String[0];
+
+    private ByteBuffer input;
+    private int position;
+    private int limit;
+    private byte[] buffer = new byte[256];
+
+    void reset(ByteBuffer input) {
+        this.input = input;
+        this.position = input.position();
+        this.limit = input.limit();
+    }
+
+    int position() {
+        return this.position;
+    }
+
+    void beginObject() {
+        expect('{');
+    }
+
+    void beginArray() {
+        expect('[');
+    }
+
+    /**
+     * Move to the next member of the current object.
+     *
+     * @return false, if object is closed
+     */
+    boolean hasNextMember() {
+        return hasNext('}');
+    }
+
+    /**
+     * Move to the next element of the current array.
+     *
+     * @return false, if array is closed
+     */
+    boolean hasNextElement() {
+        return hasNext(']');
+    }
+
+    /**
+     * Read member name and compare it with known names without allocation.
+     *
+     * @param names the known names, ascii only
+     * @return index of matched name or -1
+     */
+    int nextName(String[] names) {
+        int index = nextStringMatch(names);
+        expect(':');
+        return index;
+    }
+
+    /**
+     * Read string value and compare it with candidates without allocation.
+     *
+     * @param candidates the candidates, ascii only
+     * @return index of matched candidate or -1
+     */
+    int nextStringMatch(String[] candidates) {
+        expect('"');
+        int start = this.position;
+        int end = findStringEnd();
+        this.position = end + 1;
+        int length = end - start;
+        for (int i = 0; i < candidates.length; i++) {
+            String candidate = candidates[i];
+            if (candidate.length() == length && regionMatches(start, candidate)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Read string value, if it is equal to expected value. Otherwise position is not changed. Value is compared
+     * without allocation, unless it contains escapes or non ascii characters.
+     *
+     * @param expected the expected value
+     * @return true, if value was equal and it was read
+     */
+    boolean nextStringEquals(String expected) {
+        int mark = this.position;
+        expect('"');
+        int start = this.position;
+        int end = findStringEnd();
+        boolean equal = end - start == expected.length() && regionMatches(start, expected) || decode(start, end).equals(expected);
+        this.position = equal ? end + 1 : mark;
+        return equal;
+    }
+
+    String nextString() {
+        expect('"');
+        int start = this.position;
+        int end = findStringEnd();
+        this.position = end + 1;
+        return decode(start, end);
+    }
+
+    /**
+     * Read scalar value as text, the same way as it was given by wal2json: strings are unescaped, numbers are kept
+     * as is, json null is java null.
+     *
+     * @return the value
+     */
+    String nextValue() {
+        byte c = peek();
+        switch (c) {
+            case '"':
+                return nextString();
+            case 'n':
+                expectLiteral("null");
+                return null;
+            case 't':
+                expectLiteral("true");
+                return "true";
+            case 'f':
+                expectLiteral("false");
+                return "false";
+            default:
+                int start = this.position;
+                while (this.position < this.limit && !isDelimiter(this.input.get(this.position))) {
+                    this.position++;
+                }
+                if (start == this.position) {
+                    throw error("Unexpected character '" + (char) c + "'");
+                }
+                return decode(start, this.position);
+        }
+    }
+
+    /**
+     * Skip scalar value and return its bounds for lazy decoding by {@link #decode(ByteBuffer, int, int, byte[])}:
+     * strings without quotes, other values as is.
+     *
+     * @return start in high 32 bits and end in low 32 bits, -1 for json null
+     */
+    long nextValueBounds() {
+        byte c = peek();
+        int start;
+        int end;
+        switch (c) {
+            case '"':
+                this.position++;
+                start = this.position;
+                end = findStringEnd();
+                this.position = end + 1;
+                break;
+            case 'n':
+                expectLiteral("null");
+                return -1;
+            default:
+                start = this.position;
+                while (this.position < this.limit && !isDelimiter(this.input.get(this.position))) {
+                    this.position++;
+                }
+                if (start == this.position) {
+                    throw error("Unexpected character '" + (char) c + "'");
+                }
+                end = this.position;
+        }
+        return ((long) start << 32) | end;
+    }
+
+    void skipValue() {
+        byte c = peek();
+        switch (c) {
+            case '{':
+                beginObject();
+                while (hasNextMember()) {
+                    nextName(NO_NAMES);
+                    skipValue();
+                }
+                break;
+            case '[':
+                beginArray();
+                while (hasNextElement()) {
+                    skipValue();
+                }
+                break;
+            case '"':
+                expect('"');
+                this.position = findStringEnd() + 1;
+                break;
+            default:
+                nextValue();
+        }
+    }
+
+    byte peek() {
+        skipWhitespace();
+        if (this.position >= this.limit) {
+            throw error("Unexpected end of message");
+        }
+        return this.input.get(this.position);
+    }
+
+    private boolean hasNext(char close) {
+        byte c = peek();
+        if (c == close) {
+            this.position++;
+            return false;
+        }
+        if (c == ',') {
+            this.position++;
+        }
+        return true;
+    }
+
+    private void expect(char expected) {
+        byte c = peek();
+        if (c != expected) {
+            throw error("Expected '" + expected + "' but was '" + (char) c + "'");
+        }
+        this.position++;
+    }
+
+    private void expectLiteral(String literal) {
+        if (this.position + literal.length() > this.limit || !regionMatches(this.position, literal)) {
+            throw error("Expected " + literal);
+        }
+        this.position += literal.length();
+    }
+
+    private void skipWhitespace() {
+        while (this.position < this.limit) {
+            byte c = this.input.get(this.position);
+            if (c != ' ' && c != '\n' && c != '\r' && c != '\t') {
+                return;
+            }
+            this.position++;
+        }
+    }
+
+    private int findStringEnd() {
+        int i = this.position;
+        while (i < this.limit) {
+            byte c = this.input.get(i);
+            if (c == '"') {
+                return i;
+            }
+            if (c == '\\') {
+                i++;
+            }
+            i++;
+        }
+        throw error("Unterminated string");
+    }
+
+    private String decode(int start, int end) {
+        return decode(this.input, start, end, ensureBuffer(end - start));
+    }
+
+    /**
+     * Decode UTF-8 bytes between start and end, json escapes are resolved on the way. Target buffer should be not
+     * less than end - start, method does not change state of input, so it can be used from any thread.
+     *
+     * @param input  the input
+     * @param start  the start
+     * @param end    the end
+     * @param target the target buffer
+     * @return the string
+     */
+    static String decode(ByteBuffer input, int start, int end, byte[] target) {
+        int length = 0;
+        int i = start;
+        while (i < end) {
+            byte c = input.get(i++);
+            if (c != '\\') {
+                target[length++] = c;
+                continue;
+            }
+            byte escaped = input.get(i++);
+            switch (escaped) {
+                case 'b':
+                    target[length++] = '\b';
+                    break;
+                case 'f':
+                    target[length++] = '\f';
+                    break;
+                case 'n':
+                    target[length++] = '\n';
+                    break;
+                case 'r':
+                    target[length++] = '\r';
+                    break;
+                case 't':
+                    target[length++] = '\t';
+                    break;
+                case 'u':
+                    int codePoint = readHex(input, i, end);
+                    i += 4;
+                    if (Character.isHighSurrogate((char) codePoint) && i + 6 <= end
+                            && input.get(i) == '\\' && input.get(i + 1) == 'u') {
+                        int low = readHex(input, i + 2, end);
+                        if (Character.isLowSurrogate((char) low)) {
+                            codePoint = Character.toCodePoint((char) codePoint, (char) low);
+                            i += 6;
+                        }
+                    }
+                    length = appendUtf8(target, length, codePoint);
+                    break;
+                default:
+                    target[length++] = escaped;
+            }
+        }
+        return new String(target, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private static int readHex(ByteBuffer input, int start, int end) {
+        if (start + 4 > end) {
+            throw new IllegalArgumentException("Malformed unicode escape at position " + start + " of wal2json message");
+        }
+        int value = 0;
+        for (int i = start; i < start + 4; i++) {
+            int digit = Character.digit(input.get(i), 16);
+            if (digit < 0) {
+                throw new IllegalArgumentException("Malformed unicode escape at position " + start + " of wal2json message");
+            }
+            value = (value << 4) | digit;
+        }
+        return value;
+    }
+
+    /**
+     * Escaped sequence \\uXXXX takes 6 bytes and encodes to at most 3 bytes (or 12 bytes to 4 for a surrogate pair),
+     * so buffer sized by source length is always enough.
+     */
+    private static int appendUtf8(byte[] target, int length, int codePoint) {
+        if (codePoint < 0x80) {
+            target[length++] = (byte) codePoint;
+        } else if (codePoint < 0x800) {
+            target[length++] = (byte) (0xC0 | (codePoint >> 6));
+            target[length++] = (byte) (0x80 | (codePoint & 0x3F));
+        } else if (codePoint < 0x10000) {
+            target[length++] = (byte) (0xE0 | (codePoint >> 12));
+            target[length++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+            target[length++] = (byte) (0x80 | (codePoint & 0x3F));
+        } else {
+            target[length++] = (byte) (0xF0 | (codePoint >> 18));
+            target[length++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+            target[length++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+            target[length++] = (byte) (0x80 | (codePoint & 0x3F));
+        }
+        return length;
+    }
+
+    private byte[] ensureBuffer(int size) {
+        if (this.buffer.length < size) {
+            this.buffer = new byte[Math.max(size, this.buffer.length * 2)];
+        }
+        return this.buffer;
+    }
+
+    private boolean regionMatches(int start, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (this.input.get(start + i) != value.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isDelimiter(byte c) {
+        return c == ',' || c == ']' || c == '}' || c == ' ' || c == '\n' || c == '\r' || c == '\t';
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(message + " at position " + this.position + " of wal2json message");
+    }
+}
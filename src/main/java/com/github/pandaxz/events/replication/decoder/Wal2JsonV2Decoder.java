@@ -0,0 +1,272 @@
+/*
+ *   Copyright 2019 the original author or authors.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *        https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+
+package com.github.pandaxz.events.replication.decoder;
+
+import com.github.pandaxz.events.dto.Change;
+import com.github.pandaxz.events.dto.ChangePool;
+import com.github.pandaxz.events.dto.ChangeSet;
+import com.github.pandaxz.events.dto.ChangeType;
+import com.github.pandaxz.events.dto.ColumnType;
+import com.github.pandaxz.events.dto.Row;
+import com.github.pandaxz.events.dto.RowSchema;
+import com.github.pandaxz.events.dto.ValueSource;
+import org.postgresql.replication.LogSequenceNumber;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streaming decoder for wal2json format-version 2, where every row is a separate message. Rows are decoded as soon as
+ * they arrive and only commit message finishes transaction, so memory does not depend on transaction size. Values are
+ * provided as {@link Row}s with cached {@link RowSchema} of table, with include-types values of numeric and boolean
+ * columns are parsed to primitive form. With lazy values every row keeps only its own message and unescapes values of
+ * columns on access. Instance is not thread safe and should be used by one producer.
+ *
+ * @author Uladzislau Belykh
+ */
+public class Wal2JsonV2Decoder implements ReplicationMessageDecoder {
+
+    private static final String[] MESSAGE_NAMES = {"action", "table", "columns", "identity", "nextlsn", "timestamp"};
+    private static final int ACTION = 0;
+    private static final int TABLE = 1;
+    private static final int COLUMNS = 2;
+    private static final int IDENTITY = 3;
+    private static final int NEXT_LSN = 4;
+    private static final int TIMESTAMP = 5;
+
+    private static final String[] COLUMN_NAMES = {"name", "type", "value"};
+    private static final int NAME = 0;
+    private static final int TYPE = 1;
+    private static final int VALUE = 2;
+
+    private static final String[] ACTIONS = {"I", "U", "D", "C"};
+    private static final ChangeType[] ACTION_TYPES = {ChangeType.INSERT, ChangeType.UPDATE, ChangeType.DELETE};
+    private static final int COMMIT = 3;
+
+    private final Wal2JsonReader reader = new Wal2JsonReader();
+    private final List<String> names = new ArrayList<>();
+    private final List<String> values = new ArrayList<>();
+    private final List<ColumnType> types = new ArrayList<>();
+    private final Map<String, RowSchema> schemas = new HashMap<>();
+    private final Map<String, RowSchema> identitySchemas = new HashMap<>();
+    private final ProjectedSchemas projectedSchemas = new ProjectedSchemas();
+    private ChangePool changePool;
+    private final boolean lazyValues;
+    private ValueSource source;
+    private int[] bounds = new int[64];
+
+    /**
+     * Instantiates a new decoder.
+     */
+    public Wal2JsonV2Decoder() {
+        this(false);
+    }
+
+    /**
+     * Instantiates a new decoder.
+     *
+     * @param lazyValues decode text values of rows on access
+     */
+    public Wal2JsonV2Decoder(boolean lazyValues) {
+        this.lazyValues = lazyValues;
+    }
+
+    @Override
+    public void setColumnProjection(ColumnProjection columnProjection) {
+        this.projectedSchemas.setColumnProjection(columnProjection);
+    }
+
+    @Override
+    public void setChangePool(ChangePool changePool) {
+        this.changePool = changePool;
+    }
+
+    @Override
+    public ChangeSet decode(ByteBuffer message) {
+        this.source = this.lazyValues ? new Wal2JsonValueSource(message) : null;
+        try {
+            ChangeSet changeSet = decodeMessage(message);
+            if (this.lazyValues) {
+                ReplicationMessageDecoder.chargeMessage(changeSet, message);
+            }
+            return changeSet;
+        } finally {
+            this.source = null;
+        }
+    }
+
+    private ChangeSet decodeMessage(ByteBuffer message) {
+        this.reader.reset(message);
+        int action = -1;
+        String table = null;
+        Map<String, String> columns = null;
+        Map<String, String> identity = null;
+        ChangeSet changeSet = new ChangeSet();
+        this.reader.beginObject();
+        while (this.reader.hasNextMember()) {
+            switch (this.reader.nextName(MESSAGE_NAMES)) {
+                case ACTION:
+                    action = this.reader.nextStringMatch(ACTIONS);
+                    break;
+                case TABLE:
+                    table = this.reader.nextString();
+                    break;
+                case COLUMNS:
+                    columns = readRow(this.schemas, table);
+                    break;
+                case IDENTITY:
+                    identity = readRow(this.identitySchemas, table);
+                    break;
+                case NEXT_LSN:
+                    changeSet.setNextLsn(LogSequenceNumber.valueOf(this.reader.nextString()));
+                    break;
+                case TIMESTAMP:
+                    changeSet.setCommitTime(this.reader.nextString());
+                    break;
+                default:
+                    this.reader.skipValue();
+            }
+        }
+
+        if (action < 0 || action == COMMIT) {
+            changeSet.setCommit(action == COMMIT);
+            changeSet.setChanges(Collections.emptyList());
+            return changeSet;
+        }
+        ChangeType type = ACTION_TYPES[action];
+        Change<Map<String, String>> change = createChange(type, table, identity, type == ChangeType.DELETE ? null : columns);
+        change.setSize(ReplicationMessageDecoder.estimateSize(change, message.remaining()));
+        changeSet.setNextLsn(null);
+        changeSet.setChanges(Collections.singletonList(change));
+        return changeSet;
+    }
+
+    /**
+     * Read columns into row. Names and types are compared with cached schema of table and new schema is cached only if
+     * table columns are changed.
+     */
+    private Row readRow(Map<String, RowSchema> cache, String table) {
+        RowSchema cached = table == null ? null : cache.get(table);
+        boolean matches = cached != null;
+        ProjectedSchemas.Projection cachedProjection = matches ? this.projectedSchemas.get(cached) : null;
+        this.names.clear();
+        this.values.clear();
+        this.types.clear();
+        this.reader.beginArray();
+        while (this.reader.hasNextElement()) {
+            int index = this.names.size();
+            String name = null;
+            String value = null;
+            ColumnType type = ColumnType.TEXT;
+            if (this.source != null) {
+                addBounds(index, -1);
+            }
+            this.reader.beginObject();
+            while (this.reader.hasNextMember()) {
+                switch (this.reader.nextName(COLUMN_NAMES)) {
+                    case NAME:
+                        if (matches && index < cached.size() && this.reader.nextStringEquals(cached.getName(index))) {
+                            name = cached.getName(index);
+                        } else {
+                            matches = false;
+                            name = this.reader.nextString();
+                        }
+                        break;
+                    case TYPE:
+                        type = ColumnTypes.ofName(this.reader.nextStringMatch(ColumnTypes.NAMES));
+                        break;
+                    case VALUE:
+                        if (matches && cachedProjection != null && index < cached.size() && cachedProjection.indexOf(index) < 0) {
+                            this.reader.skipValue();
+                        } else if (this.source == null) {
+                            value = this.reader.nextValue();
+                        } else {
+                            addBounds(index, this.reader.nextValueBounds());
+                        }
+                        break;
+                    default:
+                        this.reader.skipValue();
+                }
+            }
+            matches = matches && index < cached.size() && type == cached.getType(index);
+            this.names.add(name);
+            this.values.add(value);
+            this.types.add(type);
+        }
+        RowSchema schema = cached;
+        if (!matches || this.names.size() != cached.size()) {
+            schema = new RowSchema(table, this.names.toArray(new String[0]), this.types.toArray(new ColumnType[0]));
+            if (table != null) {
+                cache.put(table, schema);
+            }
+        }
+        ProjectedSchemas.Projection projection = this.projectedSchemas.get(schema);
+        if (projection == null) {
+            if (this.source != null) {
+                return new Row(schema, this.source, Arrays.copyOf(this.bounds, schema.size() * 2));
+            }
+            return new Row(schema, this.values.toArray(newValues(schema.size())));
+        }
+        RowSchema target = projection.getSchema();
+        if (this.source != null) {
+            int[] targetBounds = new int[target.size() * 2];
+            for (int i = 0; i < schema.size(); i++) {
+                int targetIndex = projection.indexOf(i);
+                if (targetIndex >= 0) {
+                    targetBounds[targetIndex * 2] = this.bounds[i * 2];
+                    targetBounds[targetIndex * 2 + 1] = this.bounds[i * 2 + 1];
+                }
+            }
+            return new Row(target, this.source, targetBounds);
+        }
+        String[] targetValues = newValues(target.size());
+        for (int i = 0; i < schema.size(); i++) {
+            int targetIndex = projection.indexOf(i);
+            if (targetIndex >= 0) {
+                targetValues[targetIndex] = this.values.get(i);
+            }
+        }
+        return new Row(target, targetValues);
+    }
+
+    private void addBounds(int index, long valueBounds) {
+        if (this.bounds.length < index * 2 + 2) {
+            this.bounds = Arrays.copyOf(this.bounds, Math.max(index * 2 + 2, this.bounds.length * 2));
+        }
+        this.bounds[index * 2] = valueBounds < 0 ? -1 : (int) (valueBounds >>> 32);
+        this.bounds[index * 2 + 1] = (int) valueBounds;
+    }
+
+    private Change<Map<String, String>> createChange(ChangeType type, String table, Map<String, String> oldValue,
+                                                     Map<String, String> newValue) {
+        if (this.changePool == null) {
+            return new Change<>(type, table, oldValue, newValue);
+        }
+        return this.changePool.acquire(type, table, oldValue, newValue);
+    }
+
+    private String[] newValues(int size) {
+        return this.changePool == null ? new String[size] : this.changePool.acquireValues(size);
+    }
+}
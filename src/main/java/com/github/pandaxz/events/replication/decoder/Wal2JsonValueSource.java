@@ -0,0 +1,41 @@
+/*
+ *   Copyright 2019 the original author or authors.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *        https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+
+package com.github.pandaxz.events.replication.decoder;
+
+import com.github.pandaxz.events.dto.ValueSource;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Wal2json message that values of lazy rows are decoded from. Strings are unescaped on decode.
+ *
+ * @author Uladzislau Belykh
+ */
+class Wal2JsonValueSource implements ValueSource {
+    private final ByteBuffer message;
+
+    Wal2JsonValueSource(ByteBuffer message) {
+        this.message = message;
+    }
+
+    @Override
+    public String decode(int start, int end) {
+        return Wal2JsonReader.decode(this.message, start, end, new byte[end - start]);
+    }
+}
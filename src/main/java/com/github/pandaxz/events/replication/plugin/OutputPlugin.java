@@ -0,0 +1,65 @@
+/*
+ *   Copyright 2019 the original author or authors.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *        https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+
+package com.github.pandaxz.events.replication.plugin;
+
+import com.github.pandaxz.events.replication.decoder.ReplicationMessageDecoder;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Logical decoding output plugin used by replication slot. Provides slot options for the server side and decoder
+ * for the client side.
+ *
+ * @author Uladzislau Belykh
+ */
+public interface OutputPlugin {
+
+    /**
+     * Gets name of output plugin, it is used when replication slot is created.
+     *
+     * @return the name
+     */
+    String getName();
+
+    /**
+     * Gets slot options for start of replication stream.
+     *
+     * @param tables the replicated tables
+     * @return the slot options
+     */
+    Map<String, Object> getSlotOptions(List<String> tables);
+
+    /**
+     * Create decoder for messages of this plugin. Decoder is used by one producer.
+     *
+     * @return the decoder
+     */
+    ReplicationMessageDecoder createDecoder();
+
+    /**
+     * Check whether messages can be decoded by several decoders in parallel. It is true only if decoder keeps no
+     * state between messages, e.g. pgoutput decoder caches relations and can not be used in parallel.
+     *
+     * @return the boolean
+     */
+    default boolean supportsParallelDecoding() {
+        return false;
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ *   Copyright 2019 the original author or authors.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *        https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+
+package com.github.pandaxz.events.replication.plugin;
+
+import com.github.pandaxz.events.replication.decoder.PgOutputDecoder;
+import com.github.pandaxz.events.replication.decoder.ReplicationMessageDecoder;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * {@link OutputPlugin} for built-in pgoutput plugin. It does not need extensions on server, replicated tables are
+ * defined by publication, so list of tables of replication stream is not used.
+ *
+ * @author Uladzislau Belykh
+ */
+public class PgOutputPlugin implements OutputPlugin {
+
+    public static final String NAME = "pgoutput";
+
+    private String publicationName;
+    private boolean typedValues;
+    private boolean lazyValues;
+
+    /**
+     * Instantiates a new pgoutput plugin.
+     *
+     * @param publicationName the publication name
+     */
+    public PgOutputPlugin(String publicationName) {
+        this(publicationName, false);
+    }
+
+    /**
+     * Instantiates a new pgoutput plugin.
+     *
+     * @param publicationName the publication name
+     * @param typedValues     parse numeric and boolean values to primitive form once in decoder, see
+     *                        {@link com.github.pandaxz.events.dto.Row#getLong(int)}
+     */
+    public PgOutputPlugin(String publicationName, boolean typedValues) {
+        Objects.requireNonNull(publicationName, "Publication name should be not null");
+        this.publicationName = publicationName;
+        this.typedValues = typedValues;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public Map<String, Object> getSlotOptions(List<String> tables) {
+        Map<String, Object> options = new LinkedHashMap<>();
+        options.put("proto_version", 1);
+        options.put("publication_names", publicationName);
+        return options;
+    }
+
+    @Override
+    public ReplicationMessageDecoder createDecoder() {
+        return new PgOutputDecoder(typedValues, lazyValues);
+    }
+
+    /**
+     * Gets publication name.
+     *
+     * @return the publication name
+     */
+    public String getPublicationName() {
+        return publicationName;
+    }
+
+    /**
+     * Check is typed values are enabled.
+     *
+     * @return the boolean
+     */
+    public boolean isTypedValues() {
+        return typedValues;
+    }
+
+    /**
+     * Check is lazy values are enabled.
+     *
+     * @return the boolean
+     */
+    public boolean isLazyValues() {
+        return lazyValues;
+    }
+
+    /**
+     * Sets lazy values. Rows keep replication message and decode text values only on access, so values that are not
+     * read by handlers are never decoded.
+     *
+     * @param lazyValues the lazy values
+     */
+    public void setLazyValues(boolean lazyValues) {
+        this.lazyValues = lazyValues;
+    }
+}
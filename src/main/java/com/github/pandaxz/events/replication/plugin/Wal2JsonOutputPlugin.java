@@ -0,0 +1,155 @@
+/*
+ *   Copyright 2019 the original author or authors.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *        https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+
+package com.github.pandaxz.events.replication.plugin;
+
+import com.github.pandaxz.events.replication.decoder.ReplicationMessageDecoder;
+import com.github.pandaxz.events.replication.decoder.Wal2JsonDecoder;
+import com.github.pandaxz.events.replication.decoder.Wal2JsonV2Decoder;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link OutputPlugin} for wal2json extension. Format-version 1 provides whole transaction in one message (or in
+ * several messages with write-in-chunks), with format-version 2 every row is a separate message. Output is compact by
+ * default, pretty-print only adds whitespace that is sent over network and skipped by decoder.
+ *
+ * @author Uladzislau Belykh
+ */
+public class Wal2JsonOutputPlugin implements OutputPlugin {
+
+    public static final String NAME = "wal2json";
+
+    private int formatVersion;
+    private Map<String, Object> options;
+    private boolean lazyValues;
+
+    /**
+     * Instantiates a new wal2json output plugin with format-version 1.
+     */
+    public Wal2JsonOutputPlugin() {
+        this(1);
+    }
+
+    /**
+     * Instantiates a new wal2json output plugin.
+     *
+     * @param formatVersion the format version, 1 or 2
+     */
+    public Wal2JsonOutputPlugin(int formatVersion) {
+        this(formatVersion, Collections.emptyMap());
+    }
+
+    /**
+     * Instantiates a new wal2json output plugin with provided wal2json options.
+     *
+     * @param formatVersion the format version, 1 or 2
+     * @param options       the wal2json options, they override default options
+     */
+    public Wal2JsonOutputPlugin(int formatVersion, Map<String, Object> options) {
+        if (formatVersion != 1 && formatVersion != 2) {
+            throw new IllegalArgumentException("Unsupported wal2json format version " + formatVersion);
+        }
+        this.formatVersion = formatVersion;
+        this.options = Collections.unmodifiableMap(new LinkedHashMap<>(options));
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public Map<String, Object> getSlotOptions(List<String> tables) {
+        Map<String, Object> slotOptions = new LinkedHashMap<>();
+        slotOptions.put("format-version", formatVersion);
+        slotOptions.put("include-xids", true);
+        slotOptions.put("pretty-print", false);
+        slotOptions.put("include-timestamp", true);
+        slotOptions.put("include-types", false);
+        slotOptions.put("include-lsn", true);
+        slotOptions.put("add-tables", String.join(", ", tables));
+        slotOptions.putAll(options);
+        return slotOptions;
+    }
+
+    @Override
+    public ReplicationMessageDecoder createDecoder() {
+        if (formatVersion == 2) {
+            return new Wal2JsonV2Decoder(lazyValues);
+        }
+        return new Wal2JsonDecoder(isWriteInChunks(), lazyValues);
+    }
+
+    /**
+     * Messages are decoded in parallel, unless transaction of format-version 1 is written in chunks.
+     */
+    @Override
+    public boolean supportsParallelDecoding() {
+        return formatVersion == 2 || !isWriteInChunks();
+    }
+
+    /**
+     * Gets format version.
+     *
+     * @return the format version
+     */
+    public int getFormatVersion() {
+        return formatVersion;
+    }
+
+    /**
+     * Gets wal2json options, that override default options.
+     *
+     * @return the options
+     */
+    public Map<String, Object> getOptions() {
+        return options;
+    }
+
+    /**
+     * Check is write-in-chunks enabled.
+     *
+     * @return the boolean
+     */
+    public boolean isWriteInChunks() {
+        return Boolean.parseBoolean(String.valueOf(options.get("write-in-chunks")));
+    }
+
+    /**
+     * Check is lazy values are enabled.
+     *
+     * @return the boolean
+     */
+    public boolean isLazyValues() {
+        return lazyValues;
+    }
+
+    /**
+     * Sets lazy values. Rows keep replication message and decode text values only on access, so values that are not
+     * read by handlers are never decoded.
+     *
+     * @param lazyValues the lazy values
+     */
+    public void setLazyValues(boolean lazyValues) {
+        this.lazyValues = lazyValues;
+    }
+}
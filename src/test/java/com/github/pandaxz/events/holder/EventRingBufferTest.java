@@ -0,0 +1,186 @@
+/*
+ *   Copyright 2019 the original author or authors.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *        https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package com.github.pandaxz.events.holder;
+
+import com.github.pandaxz.events.dto.Change;
+import com.github.pandaxz.events.dto.ChangeType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Uladzislau Belykh
+ */
+class EventRingBufferTest {
+
+    private static final int PRODUCERS = 4;
+    private static final int EVENTS = 20_000;
+    private static final Executor THREADS = command -> new Thread(command).start();
+
+    @Test
+    void holdsExactlyCapacity() {
+        EventRingBuffer ringBuffer = new EventRingBuffer(10);
+
+        for (int i = 0; i < 10; i++) {
+            assertTrue(ringBuffer.offer(change(0), null));
+        }
+        assertFalse(ringBuffer.offer(change(0), null));
+        assertTrue(ringBuffer.isFull());
+        assertEquals(10, ringBuffer.capacity());
+
+        ringBuffer.remove(1);
+        assertTrue(ringBuffer.offer(change(0), null));
+        assertFalse(ringBuffer.offer(change(0), null));
+    }
+
+    @Test
+    void keepsHandlersOfChange() {
+        EventRingBuffer ringBuffer = new EventRingBuffer(2);
+        List<EventHandler> handlers = Collections.singletonList(event -> {
+        });
+
+        ringBuffer.offer(change(0), null);
+        ringBuffer.offer(change(0), handlers);
+
+        assertNull(ringBuffer.peekHandlers(0));
+        assertSame(handlers, ringBuffer.peekHandlers(1));
+        ringBuffer.remove(2);
+        assertNull(ringBuffer.peek(0));
+    }
+
+    @Test
+    @Timeout(60)
+    void keepsOrderOfEveryProducer() {
+        EventRingBuffer ringBuffer = new EventRingBuffer(100);
+        List<List<Change<Map<String, String>>>> produced = produced();
+        List<CompletableFuture<Void>> producers = startProducers(ringBuffer, produced);
+
+        int[] next = new int[PRODUCERS];
+        int consumed = 0;
+        while (consumed < PRODUCERS * EVENTS) {
+            int count = 0;
+            Change<Map<String, String>> event;
+            while (count < 16 && (event = ringBuffer.peek(count)) != null) {
+                int producer = producer(event);
+                assertSame(produced.get(producer).get(next[producer]), event);
+                next[producer]++;
+                count++;
+            }
+            if (count == 0) {
+                Thread.yield();
+                continue;
+            }
+            ringBuffer.remove(count);
+            consumed += count;
+        }
+
+        CompletableFuture.allOf(producers.toArray(new CompletableFuture<?>[0])).join();
+        assertTrue(ringBuffer.isEmpty());
+        assertEquals(PRODUCERS * EVENTS, ringBuffer.headIndex());
+    }
+
+    @Test
+    @Timeout(60)
+    void handlesEveryChangeOnceByStealingConsumers() {
+        EventRingBuffer ringBuffer = new EventRingBuffer(64);
+        List<List<Change<Map<String, String>>>> produced = produced();
+        AtomicIntegerArray handled = new AtomicIntegerArray(PRODUCERS * EVENTS);
+        AtomicLong total = new AtomicLong();
+        List<CompletableFuture<Void>> producers = startProducers(ringBuffer, produced);
+
+        List<CompletableFuture<Void>> consumers = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            consumers.add(CompletableFuture.runAsync(() -> {
+                EventRingBuffer.Claim claim = new EventRingBuffer.Claim();
+                while (total.get() < PRODUCERS * EVENTS) {
+                    if (!ringBuffer.claim(8, claim)) {
+                        Thread.yield();
+                        continue;
+                    }
+                    for (long index = claim.start; index < claim.start + claim.count; index++) {
+                        Change<Map<String, String>> event = ringBuffer.get(index);
+                        handled.incrementAndGet(producer(event) * EVENTS + sequence(event));
+                    }
+                    ringBuffer.complete(claim.start, claim.count);
+                    total.addAndGet(claim.count);
+                }
+            }, THREADS));
+        }
+
+        CompletableFuture.allOf(producers.toArray(new CompletableFuture<?>[0])).join();
+        CompletableFuture.allOf(consumers.toArray(new CompletableFuture<?>[0])).join();
+        for (int i = 0; i < handled.length(); i++) {
+            assertEquals(1, handled.get(i));
+        }
+        assertTrue(ringBuffer.isEmpty());
+    }
+
+    private static List<List<Change<Map<String, String>>>> produced() {
+        List<List<Change<Map<String, String>>>> produced = new ArrayList<>();
+        for (int producer = 0; producer < PRODUCERS; producer++) {
+            List<Change<Map<String, String>>> events = new ArrayList<>(EVENTS);
+            for (int i = 0; i < EVENTS; i++) {
+                Change<Map<String, String>> event = change(producer);
+                event.setSize(i);
+                events.add(event);
+            }
+            produced.add(events);
+        }
+        return produced;
+    }
+
+    private static List<CompletableFuture<Void>> startProducers(EventRingBuffer ringBuffer, List<List<Change<Map<String, String>>>> produced) {
+        List<CompletableFuture<Void>> producers = new ArrayList<>();
+        for (List<Change<Map<String, String>>> events : produced) {
+            producers.add(CompletableFuture.runAsync(() -> {
+                for (Change<Map<String, String>> event : events) {
+                    while (!ringBuffer.offer(event, null)) {
+                        Thread.yield();
+                    }
+                }
+            }, THREADS));
+        }
+        return producers;
+    }
+
+    private static Change<Map<String, String>> change(int producer) {
+        return new Change<>(ChangeType.INSERT, String.valueOf(producer), null, null);
+    }
+
+    private static int producer(Change<Map<String, String>> event) {
+        return Integer.parseInt(event.getTable());
+    }
+
+    private static int sequence(Change<Map<String, String>> event) {
+        return (int) event.getSize();
+    }
+}
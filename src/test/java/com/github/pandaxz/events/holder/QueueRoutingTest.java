@@ -0,0 +1,132 @@
+/*
+ *   Copyright 2019 the original author or authors.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *        https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package com.github.pandaxz.events.holder;
+
+import com.github.pandaxz.events.dto.Change;
+import com.github.pandaxz.events.dto.ChangeType;
+import com.github.pandaxz.events.holder.resolver.ConsistentHash;
+import com.github.pandaxz.events.holder.resolver.EventQueueResolver;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Changes of the same key are handled in order of adding, while queues are resized and keys move between queues.
+ *
+ * @author Uladzislau Belykh
+ */
+class QueueRoutingTest {
+
+    private static final String TABLE = "accounts";
+    private static final int KEYS = 64;
+    private static final int ROUNDS = 300;
+    private static final EventQueueResolver RESOLVER = (queueCount, event) ->
+            ConsistentHash.bucket(Long.parseLong(event.getNewValue().get("id")), queueCount);
+
+    @Test
+    @Timeout(120)
+    void keepsOrderOfKeysInCommonHolderWhileResized() throws IOException {
+        EventHolder holder = new EventHolder();
+        holder.registerCommonHolder(TABLE, 4, RESOLVER, 1000);
+        assertOrderKept(holder);
+    }
+
+    @Test
+    @Timeout(120)
+    void keepsOrderOfKeysInDistributedHolderWhileResized() throws IOException {
+        EventHolder holder = new EventHolder();
+        holder.registerDistributedHolder(TABLE, 4, RESOLVER, 1000);
+        assertOrderKept(holder);
+    }
+
+    @Test
+    void movesOnlyPartOfKeysWhenQueueIsAdded() {
+        int moved = 0;
+        for (long key = 0; key < 10_000; key++) {
+            if (ConsistentHash.bucket(key, 10) != ConsistentHash.bucket(key, 11)) {
+                moved++;
+            }
+        }
+        assertTrue(moved > 500 && moved < 1500, "moved " + moved);
+    }
+
+    private static void assertOrderKept(EventHolder holder) throws IOException {
+        Map<Integer, Integer> last = new ConcurrentHashMap<>();
+        AtomicInteger handled = new AtomicInteger();
+        AtomicInteger reordered = new AtomicInteger();
+        holder.registerHandler(TABLE, event -> {
+            int id = Integer.parseInt(event.getNewValue().get("id"));
+            int sequence = Integer.parseInt(event.getNewValue().get("sequence"));
+            Integer previous = last.put(id, sequence);
+            if (previous == null ? sequence != 0 : sequence != previous + 1) {
+                reordered.incrementAndGet();
+            }
+            if (id == 0) {
+                // slow key keeps its previous queue busy during migration
+                LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(200));
+            }
+            handled.incrementAndGet();
+        });
+        holder.init();
+
+        CompletableFuture<Void> grown = null;
+        CompletableFuture<Void> shrunk = null;
+        for (int sequence = 0; sequence < ROUNDS; sequence++) {
+            if (sequence == ROUNDS / 3) {
+                grown = holder.resizeHolder(TABLE, 7);
+            } else if (sequence == 2 * ROUNDS / 3) {
+                shrunk = holder.resizeHolder(TABLE, 2);
+            }
+            for (int id = 0; id < KEYS; id++) {
+                assertTrue(holder.add(Collections.singletonList(change(id, sequence))));
+            }
+        }
+        grown.join();
+        shrunk.join();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+        while (handled.get() < KEYS * ROUNDS && System.nanoTime() < deadline) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        holder.close();
+
+        assertEquals(KEYS * ROUNDS, handled.get());
+        assertEquals(0, reordered.get());
+        for (int id = 0; id < KEYS; id++) {
+            assertEquals(ROUNDS - 1, last.get(id));
+        }
+    }
+
+    private static Change<Map<String, String>> change(int id, int sequence) {
+        Map<String, String> value = new HashMap<>();
+        value.put("id", String.valueOf(id));
+        value.put("sequence", String.valueOf(sequence));
+        return new Change<>(ChangeType.INSERT, TABLE, null, value);
+    }
+}
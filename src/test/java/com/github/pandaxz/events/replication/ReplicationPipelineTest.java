@@ -0,0 +1,142 @@
+/*
+ *   Copyright 2019 the original author or authors.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *        https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package com.github.pandaxz.events.replication;
+
+import com.github.pandaxz.events.dto.Change;
+import com.github.pandaxz.events.idle.BackoffIdleStrategy;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.postgresql.replication.LogSequenceNumber;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Messages received by pipeline before stop are handled or received again, so restarted producer continues without
+ * lost transactions.
+ *
+ * @author Uladzislau Belykh
+ */
+class ReplicationPipelineTest {
+
+    private static final int TRANSACTIONS = 400;
+
+    @Test
+    @Timeout(60)
+    void handlesReceivedMessagesWhenStoppedAndRestarted() {
+        MessageStream stream = new MessageStream(TRANSACTIONS);
+        List<Long> handled = Collections.synchronizedList(new ArrayList<>());
+        ReplicationEventProducer producer = new ReplicationEventProducer(stream, changeSet -> {
+            for (Change<Map<String, String>> change : changeSet.getChanges()) {
+                handled.add(Long.parseLong(change.getNewValue().get("id")));
+            }
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(200));
+            return true;
+        });
+        producer.setPipeline(16, 2);
+
+        producer.start(new BackoffIdleStrategy());
+        awaitHandled(handled, TRANSACTIONS / 4);
+        producer.stop();
+
+        assertEquals(stream.position, handled.size(), "received messages are not handled on stop");
+        assertEquals(handled.size(), stream.committed);
+        assertInOrder(handled);
+
+        producer.start(new BackoffIdleStrategy());
+        awaitHandled(handled, TRANSACTIONS);
+        producer.stop();
+
+        assertEquals(TRANSACTIONS, handled.size());
+        assertInOrder(handled);
+    }
+
+    private static void awaitHandled(List<Long> handled, int count) {
+        while (handled.size() < count) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+    }
+
+    private static void assertInOrder(List<Long> handled) {
+        synchronized (handled) {
+            for (int i = 0; i < handled.size(); i++) {
+                assertEquals(i, handled.get(i).longValue());
+            }
+        }
+    }
+
+    private static String transaction(long id) {
+        return "{\"xid\":" + id + ",\"nextlsn\":\"" + LogSequenceNumber.valueOf(id + 1).asString() + "\","
+                + "\"timestamp\":\"2019-03-27 11:58:28.988414+00\",\"change\":["
+                + "{\"kind\":\"insert\",\"schema\":\"public\",\"table\":\"accounts\","
+                + "\"columnnames\":[\"id\",\"name\"],\"columntypes\":[\"integer\",\"text\"],"
+                + "\"columnvalues\":[" + id + ",\"name" + id + "\"]}]}";
+    }
+
+    /**
+     * Stream of wal2json transactions, lsn of message is its position plus one. Reset returns to the last committed
+     * message, as reconnect of replication stream does.
+     */
+    private static class MessageStream extends ReplicationStream {
+        private final int size;
+        private volatile int position;
+        private volatile int committed;
+
+        private MessageStream(int size) {
+            super("test_slot", new ReplicationConnectionSource("jdbc:postgresql://localhost/test", "user", "password"),
+                    null, Collections.singletonList("public.accounts"));
+            this.size = size;
+        }
+
+        @Override
+        public ReplicationEvent receive() {
+            if (position == size) {
+                return null;
+            }
+            ByteBuffer message = ByteBuffer.wrap(transaction(position).getBytes(StandardCharsets.UTF_8));
+            ReplicationEvent event = new ReplicationEvent(message, Instant.now(), LogSequenceNumber.valueOf(position + 1));
+            position++;
+            return event;
+        }
+
+        @Override
+        public boolean commit(LogSequenceNumber lastReceiveLSN, LogSequenceNumber nextLsn) {
+            committed = (int) lastReceiveLSN.asLong();
+            return true;
+        }
+
+        @Override
+        public void resetUncommitted() {
+            position = committed;
+        }
+
+        @Override
+        public boolean slotExists() {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ *   Copyright 2019 the original author or authors.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *        https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package com.github.pandaxz.events.replication.decoder;
+
+import com.github.pandaxz.events.dto.Change;
+import com.github.pandaxz.events.dto.ChangeSet;
+import com.github.pandaxz.events.dto.ChangeType;
+import com.github.pandaxz.events.dto.Row;
+import org.junit.jupiter.api.Test;
+import org.postgresql.replication.LogSequenceNumber;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.github.pandaxz.events.replication.decoder.Wal2JsonDecoderTest.row;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Decodes messages of pgoutput protocol version 1 as they are sent by postgres for transaction on table with primary
+ * key {@code id}.
+ *
+ * @author Uladzislau Belykh
+ */
+class PgOutputDecoderTest {
+
+    private static final int OID = 16384;
+    private static final long COMMIT_LSN = 0x16D3F20L;
+    private static final long END_LSN = 0x16D3F48L;
+    private static final long COMMIT_TIME = 607003108988414L;
+
+    @Test
+    void decodesTransaction() throws IOException {
+        assertTransaction(new PgOutputDecoder());
+    }
+
+    @Test
+    void decodesTransactionWithTypedAndLazyValues() throws IOException {
+        PgOutputDecoder decoder = new PgOutputDecoder(true, true);
+        assertTransaction(decoder);
+
+        Row row = (Row) decoder.decode(insert()).getChanges().get(0).getNewValue();
+        assertEquals(1, row.getLong("id"));
+        assertTrue(row.getBoolean("active"));
+        assertEquals("t", row.get("active"));
+    }
+
+    @Test
+    void failsOnChangeOfUnknownRelation() throws IOException {
+        assertThrows(IllegalStateException.class, () -> new PgOutputDecoder().decode(insert()));
+    }
+
+    private static void assertTransaction(PgOutputDecoder decoder) throws IOException {
+        ChangeSet begin = decoder.decode(begin());
+        ChangeSet relation = decoder.decode(relation());
+        ChangeSet insert = decoder.decode(insert());
+        ChangeSet update = decoder.decode(update());
+        ChangeSet delete = decoder.decode(delete());
+        ChangeSet commit = decoder.decode(commit());
+
+        assertFalse(begin.isCommit());
+        assertTrue(begin.getChanges().isEmpty());
+        assertTrue(relation.getChanges().isEmpty());
+
+        Change<Map<String, String>> inserted = insert.getChanges().get(0);
+        assertEquals(ChangeType.INSERT, inserted.getType());
+        assertEquals("accounts", inserted.getTable());
+        assertEquals(row("id", "1", "name", "José", "active", "t"), new HashMap<>(inserted.getNewValue()));
+
+        Change<Map<String, String>> updated = update.getChanges().get(0);
+        assertEquals(ChangeType.UPDATE, updated.getType());
+        assertEquals(row("id", "1"), new HashMap<>(updated.getOldValue()));
+        // unchanged toasted name is absent in row
+        assertEquals(row("id", "2", "active", null), new HashMap<>(updated.getNewValue()));
+        assertFalse(updated.getNewValue().containsKey("name"));
+
+        Change<Map<String, String>> deleted = delete.getChanges().get(0);
+        assertEquals(ChangeType.DELETE, deleted.getType());
+        assertEquals(row("id", "2"), new HashMap<>(deleted.getOldValue()));
+        assertNull(deleted.getNewValue());
+
+        assertTrue(commit.isCommit());
+        assertTrue(commit.getChanges().isEmpty());
+        assertEquals(LogSequenceNumber.valueOf(END_LSN), commit.getNextLsn());
+        assertEquals("2019-03-27T11:58:28.988414Z", commit.getCommitTime());
+    }
+
+    private static ByteBuffer begin() throws IOException {
+        Message message = new Message('B');
+        message.out.writeLong(END_LSN);
+        message.out.writeLong(COMMIT_TIME);
+        message.out.writeInt(585);
+        return message.toBuffer();
+    }
+
+    private static ByteBuffer relation() throws IOException {
+        Message message = new Message('R');
+        message.out.writeInt(OID);
+        message.string("public");
+        message.string("accounts");
+        message.out.writeByte('d');
+        message.out.writeShort(3);
+        message.column(true, "id", 23);
+        message.column(false, "name", 25);
+        message.column(false, "active", 16);
+        return message.toBuffer();
+    }
+
+    private static ByteBuffer insert() throws IOException {
+        Message message = new Message('I');
+        message.out.writeInt(OID);
+        message.out.writeByte('N');
+        message.out.writeShort(3);
+        message.text("1");
+        message.text("José");
+        message.text("t");
+        return message.toBuffer();
+    }
+
+    private static ByteBuffer update() throws IOException {
+        Message message = new Message('U');
+        message.out.writeInt(OID);
+        message.out.writeByte('K');
+        message.out.writeShort(3);
+        message.text("1");
+        message.out.writeByte('n');
+        message.out.writeByte('n');
+        message.out.writeByte('N');
+        message.out.writeShort(3);
+        message.text("2");
+        message.out.writeByte('u');
+        message.out.writeByte('n');
+        return message.toBuffer();
+    }
+
+    private static ByteBuffer delete() throws IOException {
+        Message message = new Message('D');
+        message.out.writeInt(OID);
+        message.out.writeByte('K');
+        message.out.writeShort(3);
+        message.text("2");
+        message.out.writeByte('n');
+        message.out.writeByte('n');
+        return message.toBuffer();
+    }
+
+    private static ByteBuffer commit() throws IOException {
+        Message message = new Message('C');
+        message.out.writeByte(0);
+        message.out.writeLong(COMMIT_LSN);
+        message.out.writeLong(END_LSN);
+        message.out.writeLong(COMMIT_TIME);
+        return message.toBuffer();
+    }
+
+    /**
+     * Writer of pgoutput message, values are in network byte order.
+     */
+    private static class Message {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(bytes);
+
+        private Message(char type) throws IOException {
+            out.writeByte(type);
+        }
+
+        private void string(String value) throws IOException {
+            out.write(value.getBytes(StandardCharsets.UTF_8));
+            out.writeByte(0);
+        }
+
+        private void column(boolean key, String name, int typeOid) throws IOException {
+            out.writeByte(key ? 1 : 0);
+            string(name);
+            out.writeInt(typeOid);
+            out.writeInt(-1);
+        }
+
+        private void text(String value) throws IOException {
+            byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+            out.writeByte('t');
+            out.writeInt(encoded.length);
+            out.write(encoded);
+        }
+
+        private ByteBuffer toBuffer() {
+            return ByteBuffer.wrap(bytes.toByteArray());
+        }
+    }
+}
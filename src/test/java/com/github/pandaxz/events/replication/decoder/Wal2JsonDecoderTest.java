@@ -0,0 +1,146 @@
+/*
+ *   Copyright 2019 the original author or authors.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *        https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package com.github.pandaxz.events.replication.decoder;
+
+import com.github.pandaxz.events.dto.Change;
+import com.github.pandaxz.events.dto.ChangeSet;
+import com.github.pandaxz.events.dto.ChangeType;
+import com.github.pandaxz.events.dto.Row;
+import org.junit.jupiter.api.Test;
+import org.postgresql.replication.LogSequenceNumber;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Decodes messages written by wal2json format-version 1 with include-types, whole transactions and write-in-chunks.
+ *
+ * @author Uladzislau Belykh
+ */
+class Wal2JsonDecoderTest {
+
+    private static final String INSERT = "{\"kind\":\"insert\",\"schema\":\"public\",\"table\":\"accounts\","
+            + "\"columnnames\":[\"id\",\"name\",\"balance\",\"active\"],"
+            + "\"columntypes\":[\"integer\",\"character varying(30)\",\"double precision\",\"boolean\"],"
+            + "\"columnvalues\":[1,\"Jos\\u00e9 \\\"Pepe\\\"\",10.5,true]}";
+    private static final String UPDATE = "{\"kind\":\"update\",\"schema\":\"public\",\"table\":\"accounts\","
+            + "\"columnnames\":[\"id\",\"name\",\"balance\",\"active\"],"
+            + "\"columntypes\":[\"integer\",\"character varying(30)\",\"double precision\",\"boolean\"],"
+            + "\"columnvalues\":[1,\"Ann\",null,false],"
+            + "\"oldkeys\":{\"keynames\":[\"id\"],\"keytypes\":[\"integer\"],\"keyvalues\":[1]}}";
+    private static final String DELETE = "{\"kind\":\"delete\",\"schema\":\"public\",\"table\":\"accounts\","
+            + "\"oldkeys\":{\"keynames\":[\"id\"],\"keytypes\":[\"integer\"],\"keyvalues\":[1]}}";
+    private static final String TRANSACTION = "{\"xid\":585,\"nextlsn\":\"0/16D3F48\",\"timestamp\":\"2019-03-27 11:58:28.988414+00\","
+            + "\"change\":[" + INSERT + "," + UPDATE + "," + DELETE + "]}";
+
+    @Test
+    void decodesTransaction() {
+        ChangeSet changeSet = new Wal2JsonDecoder().decode(TRANSACTION);
+
+        assertTrue(changeSet.isCommit());
+        assertEquals(LogSequenceNumber.valueOf("0/16D3F48"), changeSet.getNextLsn());
+        assertEquals("2019-03-27 11:58:28.988414+00", changeSet.getCommitTime());
+        assertChanges(changeSet.getChanges());
+    }
+
+    @Test
+    void decodesTransactionWithLazyValues() {
+        ChangeSet changeSet = new Wal2JsonDecoder(false, true).decode(TRANSACTION);
+
+        assertChanges(changeSet.getChanges());
+        assertTrue(changeSet.getChanges().get(0).getSize() > TRANSACTION.length() / 3);
+    }
+
+    @Test
+    void decodesTypedValues() {
+        Row row = (Row) new Wal2JsonDecoder().decode(TRANSACTION).getChanges().get(0).getNewValue();
+
+        assertEquals(1, row.getLong("id"));
+        assertEquals(10.5, row.getDouble("balance"));
+        assertTrue(row.getBoolean("active"));
+        assertEquals("10.5", row.get("balance"));
+        assertEquals("true", row.get("active"));
+    }
+
+    @Test
+    void decodesEmptyTransaction() {
+        String message = "{\"xid\":586,\"nextlsn\":\"0/16D4000\",\"timestamp\":\"2019-03-27 11:58:29.1+00\",\"change\":[]}";
+        Wal2JsonDecoder decoder = new Wal2JsonDecoder();
+
+        assertTrue(decoder.isEmptyTransaction(ByteBuffer.wrap(message.getBytes(StandardCharsets.UTF_8))));
+        ChangeSet changeSet = decoder.decode(message);
+        assertTrue(changeSet.isCommit());
+        assertTrue(changeSet.getChanges().isEmpty());
+        assertFalse(decoder.isEmptyTransaction(ByteBuffer.wrap(TRANSACTION.getBytes(StandardCharsets.UTF_8))));
+    }
+
+    @Test
+    void decodesChunks() {
+        Wal2JsonDecoder decoder = new Wal2JsonDecoder(true);
+
+        ChangeSet header = decoder.decode("{\"xid\":585,\"nextlsn\":\"0/16D3F48\",\"timestamp\":\"2019-03-27 11:58:28.988414+00\",\"change\":[");
+        assertFalse(header.isCommit());
+        assertTrue(header.getChanges().isEmpty());
+        ChangeSet insert = decoder.decode(INSERT);
+        ChangeSet update = decoder.decode("," + UPDATE);
+        ChangeSet delete = decoder.decode("," + DELETE);
+        ChangeSet trailer = decoder.decode("]}");
+
+        assertChanges(List.of(insert.getChanges().get(0), update.getChanges().get(0), delete.getChanges().get(0)));
+        assertFalse(delete.isCommit());
+        assertTrue(trailer.isCommit());
+        assertTrue(trailer.getChanges().isEmpty());
+        assertEquals(LogSequenceNumber.valueOf("0/16D3F48"), trailer.getNextLsn());
+    }
+
+    private static void assertChanges(List<Change<Map<String, String>>> changes) {
+        assertEquals(3, changes.size());
+
+        Change<Map<String, String>> insert = changes.get(0);
+        assertEquals(ChangeType.INSERT, insert.getType());
+        assertEquals("accounts", insert.getTable());
+        assertNull(insert.getOldValue());
+        assertEquals(row("id", "1", "name", "José \"Pepe\"", "balance", "10.5", "active", "true"), new HashMap<>(insert.getNewValue()));
+
+        Change<Map<String, String>> update = changes.get(1);
+        assertEquals(ChangeType.UPDATE, update.getType());
+        assertEquals(row("id", "1"), new HashMap<>(update.getOldValue()));
+        assertEquals(row("id", "1", "name", "Ann", "balance", null, "active", "false"), new HashMap<>(update.getNewValue()));
+
+        Change<Map<String, String>> delete = changes.get(2);
+        assertEquals(ChangeType.DELETE, delete.getType());
+        assertEquals(row("id", "1"), new HashMap<>(delete.getOldValue()));
+        assertNull(delete.getNewValue());
+    }
+
+    static Map<String, String> row(String... columns) {
+        Map<String, String> row = new HashMap<>();
+        for (int i = 0; i < columns.length; i += 2) {
+            row.put(columns[i], columns[i + 1]);
+        }
+        return row;
+    }
+}
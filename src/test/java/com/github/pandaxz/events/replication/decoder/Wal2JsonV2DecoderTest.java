@@ -0,0 +1,117 @@
+/*
+ *   Copyright 2019 the original author or authors.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *        https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package com.github.pandaxz.events.replication.decoder;
+
+import com.github.pandaxz.events.dto.Change;
+import com.github.pandaxz.events.dto.ChangeSet;
+import com.github.pandaxz.events.dto.ChangeType;
+import org.junit.jupiter.api.Test;
+import org.postgresql.replication.LogSequenceNumber;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.github.pandaxz.events.replication.decoder.Wal2JsonDecoderTest.row;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Decodes messages written by wal2json format-version 2 with include-types, include-lsn and include-timestamp.
+ *
+ * @author Uladzislau Belykh
+ */
+class Wal2JsonV2DecoderTest {
+
+    private static final String[] TRANSACTION = {
+            "{\"action\":\"B\",\"lsn\":\"0/16D3E20\",\"timestamp\":\"2019-03-27 11:58:28.988414+00\",\"nextlsn\":\"0/16D3F48\"}",
+            "{\"action\":\"I\",\"lsn\":\"0/16D3E20\",\"schema\":\"public\",\"table\":\"accounts\",\"columns\":["
+                    + "{\"name\":\"id\",\"type\":\"integer\",\"value\":1},"
+                    + "{\"name\":\"name\",\"type\":\"text\",\"value\":\"Jos\\u00e9\\n\"},"
+                    + "{\"name\":\"active\",\"type\":\"boolean\",\"value\":true}]}",
+            "{\"action\":\"U\",\"lsn\":\"0/16D3E90\",\"schema\":\"public\",\"table\":\"accounts\",\"columns\":["
+                    + "{\"name\":\"id\",\"type\":\"integer\",\"value\":1},"
+                    + "{\"name\":\"name\",\"type\":\"text\",\"value\":null},"
+                    + "{\"name\":\"active\",\"type\":\"boolean\",\"value\":false}],"
+                    + "\"identity\":[{\"name\":\"id\",\"type\":\"integer\",\"value\":1}]}",
+            "{\"action\":\"M\",\"transactional\":true,\"prefix\":\"audit\",\"content\":\"done\"}",
+            "{\"action\":\"D\",\"lsn\":\"0/16D3F00\",\"schema\":\"public\",\"table\":\"accounts\","
+                    + "\"identity\":[{\"name\":\"id\",\"type\":\"integer\",\"value\":1}]}",
+            "{\"action\":\"C\",\"lsn\":\"0/16D3F20\",\"timestamp\":\"2019-03-27 11:58:28.988414+00\",\"nextlsn\":\"0/16D3F48\"}"
+    };
+
+    @Test
+    void decodesTransaction() {
+        assertTransaction(new Wal2JsonV2Decoder());
+    }
+
+    @Test
+    void decodesTransactionWithLazyValues() {
+        assertTransaction(new Wal2JsonV2Decoder(true));
+    }
+
+    @Test
+    void decodesTruncateAsMessageWithoutChanges() {
+        ChangeSet truncate = decode(new Wal2JsonV2Decoder(), "{\"action\":\"T\",\"schema\":\"public\",\"table\":\"accounts\"}");
+
+        assertFalse(truncate.isCommit());
+        assertTrue(truncate.getChanges().isEmpty());
+    }
+
+    private static void assertTransaction(Wal2JsonV2Decoder decoder) {
+        ChangeSet begin = decode(decoder, TRANSACTION[0]);
+        ChangeSet insert = decode(decoder, TRANSACTION[1]);
+        ChangeSet update = decode(decoder, TRANSACTION[2]);
+        ChangeSet message = decode(decoder, TRANSACTION[3]);
+        ChangeSet delete = decode(decoder, TRANSACTION[4]);
+        ChangeSet commit = decode(decoder, TRANSACTION[5]);
+
+        assertFalse(begin.isCommit());
+        assertTrue(begin.getChanges().isEmpty());
+        assertTrue(message.getChanges().isEmpty());
+
+        Change<Map<String, String>> inserted = insert.getChanges().get(0);
+        assertEquals(ChangeType.INSERT, inserted.getType());
+        assertEquals("accounts", inserted.getTable());
+        assertEquals(row("id", "1", "name", "José\n", "active", "true"), new HashMap<>(inserted.getNewValue()));
+        assertTrue(inserted.getSize() > 0);
+
+        Change<Map<String, String>> updated = update.getChanges().get(0);
+        assertEquals(ChangeType.UPDATE, updated.getType());
+        assertEquals(row("id", "1"), new HashMap<>(updated.getOldValue()));
+        assertEquals(row("id", "1", "name", null, "active", "false"), new HashMap<>(updated.getNewValue()));
+
+        Change<Map<String, String>> deleted = delete.getChanges().get(0);
+        assertEquals(ChangeType.DELETE, deleted.getType());
+        assertEquals(row("id", "1"), new HashMap<>(deleted.getOldValue()));
+        assertNull(deleted.getNewValue());
+
+        assertFalse(delete.isCommit());
+        assertTrue(commit.isCommit());
+        assertTrue(commit.getChanges().isEmpty());
+        assertEquals(LogSequenceNumber.valueOf("0/16D3F48"), commit.getNextLsn());
+        assertEquals("2019-03-27 11:58:28.988414+00", commit.getCommitTime());
+    }
+
+    private static ChangeSet decode(Wal2JsonV2Decoder decoder, String message) {
+        return decoder.decode(ByteBuffer.wrap(message.getBytes(StandardCharsets.UTF_8)));
+    }
+}